@@ -20,4 +20,8 @@ public abstract class AbstractRepository<T extends java.io.Serializable, C exten
     protected void clearVersion(Class<? extends Serializable> type) {
         DData.clearVersion(type);
     }
+
+    protected void evict(Class<? extends Serializable> type, Serializable key) {
+        DData.evict(type, key);
+    }
 }
@@ -23,4 +23,8 @@ public abstract class AbstractSpringRepository<T extends java.io.Serializable, C
         DData.clearVersion(type);
     }
 
+    protected void evict(Class<? extends Serializable> type, Serializable key) {
+        DData.evict(type, key);
+    }
+
 }
@@ -4,6 +4,7 @@ import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.docero.data.remote.DDataRemoteRepository;
 import org.docero.data.utils.DDataModule;
+import org.docero.data.utils.DDataLoadInterceptor;
 import org.docero.data.utils.DDataObjectFactory;
 import org.docero.data.utils.UpdateOptions;
 import org.docero.data.view.DDataViewBuilder;
@@ -73,6 +74,16 @@ public class DData {
         return new DDataObjectFactory();
     }
 
+    /**
+     * Plugin for SqlSessionFactory, marks loaded beans for save of changed columns only
+     * without reading them from database.
+     *
+     * @return new instance of interceptor
+     */
+    public static org.apache.ibatis.plugin.Interceptor getLoadInterceptor() {
+        return new DDataLoadInterceptor();
+    }
+
     public static Map<Class<?>, com.fasterxml.jackson.databind.JsonDeserializer<?>> getDeserializers() {
         return modules.values().stream()
                 .flatMap(m -> m.getDeserializers().entrySet().stream())
@@ -113,6 +124,17 @@ public class DData {
         dictionariesService.put(bean);
     }
 
+    static void evict(Class<? extends Serializable> type, Serializable key) {
+        dictionariesService.evict(type, key);
+    }
+
+    /**
+     * @return service of dictionaries caches, used to set limits and read statistics of LARGE dictionaries
+     */
+    public static DDataDictionariesService getDictionariesService() {
+        return dictionariesService;
+    }
+
     private <T, R extends T> void createSpringBean(Class<T> i, R r) {
         springApplicationContext.registerBean(i, () -> r);
         buildedRepositories.put(i, springApplicationContext.getBean(i));
@@ -231,6 +253,42 @@ public class DData {
         return save(t, UpdateOptions.build().includeJsonProps().includeXmlProps());
     }
 
+    /**
+     * <strong>Сохраняет набор бинов одного типа, так же как {@link #save(Serializable, UpdateOptions)}.</strong>
+     * <UL>
+     * <LI>Существующие в базе бины и их подбины в коллекциях один ко многим загружаются заранее,
+     * одним запросом по списку ключей на каждый тип бина на каждом уровне вложенности.
+     * </LI>
+     * <LI>Изменения записываются без повторного чтения бина после вставки или обновления,
+     * возвращаются переданные бины с заполненными ключами.
+     * </LI>
+     * <LI>Пакетно выполняется только чтение: вставки, обновления и удаления выполняются
+     * отдельными запросами через сессию репозитория, так же как в save().
+     * </LI>
+     * </UL>
+     *
+     * @param beans         сохраняемые бины
+     * @param updateOptions содержит исключаемые из обновления поля и операции
+     *                      зарегестрированные для бинов определенного типа
+     * @param <T>           тип бина
+     * @return сохраненные бины
+     * @throws RuntimeException
+     * @see #save(Serializable, UpdateOptions)
+     */
+    public <T extends Serializable> List<T> saveAll(Collection<T> beans, UpdateOptions updateOptions) {
+        if (beans.isEmpty()) return new ArrayList<>();
+        T t = beans.iterator().next();
+        for (Class interfaceOfBean : extractionAllInterfaces(t.getClass()))
+            for (DDataModule m : modules.values())
+                if (m.getImplementations().containsKey(interfaceOfBean))
+                    return m.saveAll(beans, interfaceOfBean, sessionFactory, updateOptions, this);
+        throw new RuntimeException("unknown d.data repository for " + t.getClass().getName());
+    }
+
+    public <T extends Serializable> List<T> saveAll(Collection<T> beans) {
+        return saveAll(beans, UpdateOptions.build().includeJsonProps().includeXmlProps());
+    }
+
     @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
     public <T extends Serializable, C extends Serializable> DDataRepository<T, C> getBeanRepository(Class<T> beanClass) {
         Object r = buildedRepositories.get(beanClass);
@@ -11,9 +11,36 @@ public interface DDataBatchOpsRepository {
 
     <T extends Serializable> T get(Class<T> clazz, Serializable id);
 
+    /**
+     * Buffer insert of bean. Copy of bean is buffered, changes of bean after call are not
+     * written. Outside of spring transaction bean is inserted at once.
+     *
+     * @param bean inserted bean
+     */
     void insert(Serializable bean);
 
+    /**
+     * Buffer update of bean. Copy of bean is buffered, changes of bean after call are not
+     * written. Outside of spring transaction bean is updated at once.
+     *
+     * @param bean updated bean
+     */
     void update(Serializable bean);
 
+    /**
+     * Send buffered inserts and updates to database. Operations are grouped by statement,
+     * beans referenced by other beans are written first.
+     *
+     * @return one result for every statement executed after previous flush
+     */
     List<BatchResult> flushStatements();
+
+    /**
+     * Set limits of buffer of operations, buffer is sent automatically when one of them
+     * is reached. By default 1000 operations or 8 Mb of beans.
+     *
+     * @param maxOperations count of operations, 0 or less is no limit
+     * @param maxBytes      estimated size of buffered beans, 0 or less is no limit
+     */
+    void setAutoFlush(int maxOperations, long maxBytes);
 }
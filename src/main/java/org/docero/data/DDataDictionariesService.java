@@ -4,21 +4,60 @@ import org.apache.ibatis.session.SqlSession;
 import org.docero.data.remote.CachingRemoteRepository;
 import org.docero.data.remote.DDataRemoteDictionary;
 import org.docero.data.remote.DDataRemoteRepository;
+import org.docero.data.utils.ByteBufferInputStream;
+import org.docero.data.utils.DDataCachedLists;
+import org.docero.data.utils.DDataDeltaDictionary;
 import org.docero.data.utils.DDataDictionary;
+import org.docero.data.utils.DDataLargeCache;
+import org.docero.data.utils.DDataOffHeapStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.Serializable;
+import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
 
 public class DDataDictionariesService {
+    private static final Logger LOG = LoggerFactory.getLogger(DDataDictionariesService.class);
     private final ConcurrentHashMap<Class, Object> repositories =
             new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Class, Integer> versions = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Class, List> lists = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class, SnapshotHolder> snapshots = new ConcurrentHashMap<>();
+    private static final int SNAPSHOTS_FORMAT = 0xDD0A7A01;
+    /**
+     * Sizes of hot sets of dictionaries kept out of heap, mapped by repository
+     */
+    private final ConcurrentHashMap<Object, Integer> offHeap = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService executor;
+    /**
+     * Files of dictionaries saved on shutdown of JVM, and periodic saves of them
+     */
+    private final Set<File> persisted = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<File, ScheduledFuture<?>> periodicSaves = new ConcurrentHashMap<>();
+    private final AtomicBoolean shutdownHook = new AtomicBoolean();
+    /**
+     * Caches of LARGE dictionaries mapped by repository, bounded by {@link #LARGE_CACHE_SIZE} beans
+     * if other limit is not set by setLargeCacheSize.
+     */
+    private final ConcurrentHashMap<Object, DDataLargeCache<Object, Object>> largeCaches = new ConcurrentHashMap<>();
+
+    public static final long LARGE_CACHE_SIZE = 10000;
 
     DDataDictionariesService() {
     }
@@ -85,6 +124,21 @@ public class DDataDictionariesService {
     public <T extends Serializable, C extends Serializable> T get(Class<T> type, C key) {
         Object d = repositories.get(type);
         if (d == null) return null;
+        DDataLargeCache<Object, Object> cache = largeCache(d);
+        if (cache != null) {
+            if (key == null) return null;
+            // бины могли быть изменены другим узлом кластера
+            cache.validate(largeVersion((DDataDictionary) d));
+            return (T) cache.get(key, k -> ((DDataRepository<T, C>) d).get((C) k));
+        }
+        if (d instanceof DDataDictionary) {
+            // бин из загруженного списка, если список актуален
+            SnapshotHolder holder = snapshots.get(type);
+            Snapshot snapshot = holder == null ? null : current(type, holder, d);
+            if (snapshot != null && snapshot.indexed() && (snapshot.restored ||
+                    Objects.equals(snapshot.version, ((DDataDictionary) d).version_())))
+                return (T) snapshot.bean(key);
+        }
         return d instanceof DDataRepository ?
                 ((DDataRepository<T, C>) d).get(key) :
                 (d instanceof DDataRemoteRepository ?
@@ -133,15 +187,133 @@ public class DDataDictionariesService {
     public <T extends Serializable> T put(T bean) {
         if (bean == null) return null;
         Object d = repositories.get(bean.getClass());
-        if (d != null && d instanceof DDataDictionary)
+        DDataLargeCache<Object, Object> cache = largeCache(d);
+        if (cache != null) {
+            Object key = ((DDataDictionary<T, ? extends Serializable>) d).getKey(bean);
+            if (key != null) {
+                cache.put(key, bean);
+                largeChanged((DDataDictionary) d, cache);
+            }
+        } else if (d != null && d instanceof DDataDictionary)
             ((DDataDictionary<T, ? extends Serializable>) d).put_(bean);
         return bean;
     }
 
+    /**
+     * Remove bean from cache of LARGE dictionary, or loaded list of other dictionary
+     *
+     * @param type class of bean
+     * @param key  bean id, or null to remove all beans of dictionary
+     */
+    public void evict(Class<? extends Serializable> type, Serializable key) {
+        Object d = repositories.get(type);
+        DDataLargeCache<Object, Object> cache = largeCache(d);
+        if (cache != null) {
+            if (key != null) cache.invalidate(key);
+            else cache.invalidateAll();
+            largeChanged((DDataDictionary) d, cache);
+        } else if (key == null) {
+            SnapshotHolder holder = snapshots.get(type);
+            if (holder != null) synchronized (holder) {
+                holder.snapshot = null;
+                holder.saved = null;
+            }
+        }
+    }
+
+    /**
+     * Version of LARGE dictionary, kept in shared cache as version of SMALL one. Beans cached
+     * by node are dropped when other node changes version.
+     */
+    private static Integer largeVersion(DDataDictionary d) {
+        Integer v = d.version_();
+        return v == null || v == 0 ? d.version_(1) : v;
+    }
+
+    /**
+     * New version of LARGE dictionary after change of beans, own cache is already changed
+     * and is kept.
+     */
+    private static void largeChanged(DDataDictionary d, DDataLargeCache<Object, Object> cache) {
+        Integer from = largeVersion(d);
+        int to = (int) System.currentTimeMillis();
+        d.version_(to == from || to == 0 ? from + 1 : to);
+        cache.advance(from, largeVersion(d));
+    }
+
+    /**
+     * Set limit of cache of LARGE dictionary by count of beans, cached beans are dropped
+     *
+     * @param type        class of bean
+     * @param maximumSize maximal count of beans in cache
+     */
+    public void setLargeCacheSize(Class<? extends Serializable> type, long maximumSize) {
+        Object d = repositories.get(type);
+        if (isLarge(d)) largeCaches.put(d, new DDataLargeCache<>(maximumSize));
+    }
+
+    /**
+     * Set limit of cache of LARGE dictionary by weight of beans, cached beans are dropped
+     *
+     * @param type          class of bean
+     * @param maximumWeight maximal summary weight of beans in cache
+     * @param weigher       weight of bean, for example estimated size in bytes
+     */
+    public <T extends Serializable> void setLargeCacheSize(
+            Class<T> type, long maximumWeight, ToLongFunction<? super T> weigher
+    ) {
+        Object d = repositories.get(type);
+        //noinspection unchecked
+        if (isLarge(d)) largeCaches.put(d, new DDataLargeCache<>(maximumWeight,
+                v -> weigher.applyAsLong((T) v)));
+    }
+
+    /**
+     * @param type class of bean
+     * @return statistics of cache of LARGE dictionary, or null if type is not LARGE dictionary
+     */
+    public DDataLargeCache.Stats largeCacheStats(Class<? extends Serializable> type) {
+        DDataLargeCache<Object, Object> cache = largeCache(repositories.get(type));
+        return cache == null ? null : cache.stats();
+    }
+
+    private DDataLargeCache<Object, Object> largeCache(Object d) {
+        return isLarge(d) ? largeCaches.computeIfAbsent(d, k -> new DDataLargeCache<>(LARGE_CACHE_SIZE)) : null;
+    }
+
+    /**
+     * Keep beans of SMALL dictionary serialized out of heap, beans are decoded on every read
+     * except last used by key, kept in hot set. Must be called before first use of restored
+     * dictionary for restore of it out of heap.
+     * <p>List of dictionary isn't kept on heap too: every access to its item decodes bean,
+     * so iteration of list decodes all beans of dictionary, and beans taken twice are
+     * different objects. Such dictionary is for rare reads of whole list and reads by key.</p>
+     *
+     * @param type    class of bean
+     * @param hotSize count of decoded beans kept on heap, 0 for no hot set,
+     *                negative to keep dictionary on heap again
+     */
+    public void setOffHeap(Class<? extends Serializable> type, int hotSize) {
+        Object d = repositories.get(type);
+        if (!(d instanceof DDataDictionary) ||
+                ((DDataDictionary) d).getDictionaryType() != DictionaryType.SMALL) return;
+        if (hotSize < 0) offHeap.remove(d);
+        else offHeap.put(d, hotSize);
+        // list will be loaded again on next use
+        SnapshotHolder holder = snapshots.get(type);
+        if (holder != null) synchronized (holder) {
+            holder.snapshot = null;
+        }
+    }
+
+    private static boolean isLarge(Object d) {
+        return d instanceof DDataDictionary && ((DDataDictionary) d).getDictionaryType() == DictionaryType.LARGE;
+    }
+
     /*
-     * Version used for optimistic locks of 'lists' property entries, we read current list (from 'lists')
-     * if version in cache equals version from 'versions' property.
-     * Property 'lists' contains lists of bean primary keys mapped by bean interface.
+     * Version used for optimistic locks of 'snapshots' property entries, we read current list
+     * (from snapshot) if version in cache equals version of snapshot.
+     * Property 'snapshots' contains immutable lists of beans and its indexes by key mapped by bean interface.
      * Not a very important than someone read zero from version or not but in most cases
      * it will do elements loading faster.
      */
@@ -155,44 +327,495 @@ public class DDataDictionariesService {
         Object d = repositories.get(type);
         if (d instanceof DDataDictionary)
             ((DDataDictionary) d).version_(0);
+        // restored list can't be refreshed by changed rows after change of mapped beans
+        SnapshotHolder holder = snapshots.get(type);
+        if (holder != null) synchronized (holder) {
+            if (holder.snapshot != null && holder.snapshot.restored) holder.snapshot = null;
+        }
     }
 
+    /**
+     * Get all beans of dictionary. Beans are loaded once for every version of dictionary,
+     * concurrent calls wait for one load and share its result.
+     *
+     * @param type     class of bean
+     * @param session  session for load of beans
+     * @param selectId id of statement selecting all beans
+     * @return unmodifiable list of beans
+     */
     @SuppressWarnings({"unchecked"})
     public <T extends Serializable, C extends Serializable> List<T> list(
             Class<T> type, SqlSession session, String selectId
     ) {
         Object o = repositories.get(type);
-        Integer localListVersion = versions.get(type);
-
-        if (o instanceof DDataRemoteDictionary) {
-            DDataRemoteDictionary<T, C> d = (DDataRemoteDictionary<T, C>) o;
-            Integer cv = d.version_();
-            if (cv.equals(localListVersion)) {
-                return lists.get(type);
-            } else {
-                List<T> selected = session.selectList(selectId);
-                lists.put(type, selected);
-                versions.put(type, cv);
-                return selected;
+        if (!(o instanceof DDataRemoteDictionary || o instanceof DDataDictionary))
+            return Collections.emptyList();
+
+        SnapshotHolder holder = snapshots.computeIfAbsent(type, k -> new SnapshotHolder());
+        Snapshot snapshot = current(type, holder, o);
+        if (snapshot != null && Objects.equals(snapshot.version, version(o))) {
+            if (snapshot.restored) synchronized (holder) {
+                // version of restored list is actual, so list is checked
+                if (holder.snapshot == snapshot) holder.snapshot = snapshot.checked();
             }
-        } else if (o instanceof DDataDictionary) {
-            DDataDictionary<T, C> d = (DDataDictionary<T, C>) o;
-            Integer cv = d.version_();
-            if (cv.equals(localListVersion)) {
-                return lists.get(type);
-            } else {
-                List<T> selected = session.selectList(selectId);
-                lists.put(type, selected);
+            return (List<T>) snapshot.list;
+        }
+        if (snapshot != null && snapshot.restored && holder.validator != Thread.currentThread()) {
+            // restored from file list is used until it is checked by database
+            if (holder.validating.compareAndSet(false, true))
+                executor().execute(() -> {
+                    // список читается через репозиторий, сессия вызывающего уже может быть закрыта
+                    holder.validator = Thread.currentThread();
+                    try {
+                        ((DDataCachedLists) o).list();
+                    } catch (RuntimeException e) {
+                        LOG.warn("JDBC: can't validate restored dictionary " + type.getName(), e);
+                    } finally {
+                        holder.validator = null;
+                        holder.validating.set(false);
+                    }
+                });
+            return (List<T>) snapshot.list;
+        }
+        return load(o, holder, session, selectId);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private <T extends Serializable, C extends Serializable> List<T> load(
+            Object o, SnapshotHolder holder, SqlSession session, String selectId
+    ) {
+        synchronized (holder) {
+            // list may be loaded while we wait for lock
+            Integer cv = version(o);
+            Snapshot snapshot = holder.snapshot;
+            if (snapshot != null && Objects.equals(snapshot.version, cv)) {
+                if (snapshot.restored) holder.snapshot = snapshot.checked();
+                return (List<T>) snapshot.list;
+            }
+
+            // version cleared by change of mapped beans, so whole list must be loaded,
+            // but restored list has zero version on start of application
+            if (o instanceof DDataDeltaDictionary && snapshot != null && snapshot.since != null &&
+                    cv != null && (cv != 0 || snapshot.restored)) {
+                DDataDeltaDictionary<T, C> d = (DDataDeltaDictionary<T, C>) o;
+                holder.snapshot = refresh(d, snapshot, cv == 0 ? d.version_(1) : cv);
+                return (List<T>) holder.snapshot.list;
+            }
+
+            List<T> selected = session.selectList(selectId);
+            if (o instanceof DDataDictionary) {
+                DDataDictionary<T, C> d = (DDataDictionary<T, C>) o;
                 boolean initialLoad = d.version_() == 0;
                 if (initialLoad) {
-                    selected.forEach(d::put_);
+                    // beans of off-heap dictionary are not kept in other caches
+                    if (!offHeap.containsKey(d)) selected.forEach(d::put_);
                     cv = d.version_(1);
                 }
-                versions.put(type, cv);
-                return selected;
+                holder.snapshot = snapshot(d, cv, new ArrayList<>(selected), false);
+            } else
+                holder.snapshot = new Snapshot(cv, Collections.unmodifiableList(new ArrayList<>(selected)),
+                        null, null, false, null);
+            return (List<T>) holder.snapshot.list;
+        }
+    }
+
+    /**
+     * Merge beans changed since previous load into copy of snapshot. List is built in order
+     * of keys of all rows, so removed beans are dropped and new beans take place of select.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable, C extends Serializable> Snapshot refresh(
+            DDataDeltaDictionary<T, C> d, Snapshot snapshot, Integer version
+    ) {
+        // ключи читаем до изменённых записей, строки вставленные между запросами добавятся в конец
+        List<C> keys = d.keys_();
+        List<T> changed = d.listChanged_(snapshot.since);
+        Comparable since = snapshot.since;
+        for (T bean : changed) {
+            Comparable m = d.modified_(bean);
+            if (m != null && m.compareTo(since) > 0) since = m;
+        }
+        if (snapshot.store != null) {
+            // off-heap beans are copied to new store without decoding
+            DDataOffHeapStore<Object, Object> store = snapshot.store.merge((List) changed,
+                    bean -> d.getKey((T) bean), (List) keys);
+            return new Snapshot(version, store.asList(), null, since, false, store);
+        }
+
+        Map<C, T> changedByKey = new LinkedHashMap<>();
+        for (T bean : changed) {
+            C key = d.getKey(bean);
+            if (key != null) changedByKey.put(key, bean);
+            d.put_(bean);
+        }
+        List<T> list = new ArrayList<>(keys.size() + 1);
+        for (C key : keys) {
+            T bean = changedByKey.remove(key);
+            if (bean == null) {
+                Integer i = snapshot.positions.get(key);
+                if (i != null) bean = (T) snapshot.list.get(i);
             }
+            if (bean != null) list.add(bean);
+        }
+        list.addAll(changedByKey.values());
+        if (LOG.isDebugEnabled())
+            LOG.debug("dictionary " + d.getItemInterface().getName() + " refreshed by " + changed.size() + " beans");
+        return snapshot(d, version, list, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Serializable, C extends Serializable> Snapshot snapshot(
+            DDataDictionary<T, C> d, Integer version, List<T> list, boolean restored
+    ) {
+        Integer hotSize = offHeap.get(d);
+        DDataOffHeapStore.Builder<Object, Object> store = hotSize == null ? null :
+                DDataOffHeapStore.builder(d.getItemInterface().getClassLoader(), hotSize);
+        Map<Object, Integer> positions = store != null ? null : new HashMap<>(list.size() * 4 / 3 + 1);
+        Comparable since = null;
+        DDataDeltaDictionary<T, C> delta = d instanceof DDataDeltaDictionary ? (DDataDeltaDictionary<T, C>) d : null;
+        for (int i = 0; i < list.size(); i++) {
+            T bean = list.get(i);
+            C key = d.getKey(bean);
+            // bean without key is kept in list of store too
+            if (store != null) store.add(key, bean);
+            else if (key != null) positions.put(key, i);
+            if (delta != null) {
+                Comparable m = delta.modified_(bean);
+                if (m != null && (since == null || m.compareTo(since) > 0)) since = m;
+            }
+        }
+        if (store != null) {
+            DDataOffHeapStore<Object, Object> built = store.build();
+            return new Snapshot(version, built.asList(), null, since, restored, built);
+        }
+        return new Snapshot(version, Collections.unmodifiableList(list), positions, since, restored, null);
+    }
+
+    private static Integer version(Object dictionary) {
+        return ((DDataCachedLists) dictionary).version_();
+    }
+
+    /**
+     * Loaded beans of dictionary for one version, never changed after creation
+     */
+    private static final class Snapshot {
+        final Integer version;
+        final List<?> list;
+        /**
+         * positions of beans in list by key
+         */
+        final Map<Object, Integer> positions;
+        /**
+         * latest modification of beans, if dictionary may be refreshed by changed beans only
+         */
+        final Comparable since;
+        /**
+         * list read from file and not checked by database yet
+         */
+        final boolean restored;
+        /**
+         * beans out of heap, list decodes them on access
+         */
+        final DDataOffHeapStore<Object, Object> store;
+
+        Snapshot(
+                Integer version, List<?> list, Map<Object, Integer> positions, Comparable since, boolean restored,
+                DDataOffHeapStore<Object, Object> store
+        ) {
+            this.version = version;
+            this.list = list;
+            this.positions = positions;
+            this.since = since;
+            this.restored = restored;
+            this.store = store;
+        }
+
+        Snapshot checked() {
+            return new Snapshot(version, list, positions, since, false, store);
+        }
+
+        boolean indexed() {
+            return positions != null || store != null;
+        }
+
+        Object bean(Object key) {
+            if (store != null) return store.get(key);
+            Integer i = positions.get(key);
+            return i == null ? null : list.get(i);
+        }
+    }
+
+    /**
+     * Current snapshot of dictionary, also used as lock for its load
+     */
+    private static final class SnapshotHolder {
+        volatile Snapshot snapshot;
+        /**
+         * serialized list of file of dictionaries, read on first use of dictionary
+         */
+        volatile ByteBuffer saved;
+        volatile Integer savedVersion;
+        final AtomicBoolean validating = new AtomicBoolean();
+        /**
+         * thread checking restored list by database
+         */
+        volatile Thread validator;
+    }
+
+    /**
+     * Snapshot of dictionary, list saved in file is read if dictionary isn't loaded yet.
+     */
+    @SuppressWarnings("unchecked")
+    private Snapshot current(Class type, SnapshotHolder holder, Object d) {
+        Snapshot snapshot = holder.snapshot;
+        if (snapshot != null || holder.saved == null) return snapshot;
+        synchronized (holder) {
+            ByteBuffer saved = holder.saved;
+            if (holder.snapshot == null && saved != null) {
+                holder.saved = null;
+                try (ObjectInputStream beans = new SnapshotInputStream(saved.duplicate(), type, packages())) {
+                    List list = (List) beans.readObject();
+                    holder.snapshot = snapshot((DDataDictionary) d, holder.savedVersion, list, true);
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    LOG.warn("can't restore dictionary " + type.getName(), e);
+                }
+            }
+            return holder.snapshot;
+        }
+    }
+
+    /**
+     * Packages of classes allowed in saved lists: of library, of registered beans and of
+     * lazy loading of MyBatis.
+     */
+    private Set<String> packages() {
+        Set<String> packages = new HashSet<>();
+        packages.add("org.docero.data");
+        packages.add("org.apache.ibatis.executor.loader");
+        for (Class type : repositories.keySet())
+            if (type.getPackage() != null) packages.add(type.getPackage().getName());
+        return packages;
+    }
+
+    /**
+     * Reader of saved list, classes out of allow-list are rejected before any object of them
+     * is created: JDK types of bean properties, enums, classes of allowed packages and their
+     * superclasses.
+     */
+    private static final class SnapshotInputStream extends ObjectInputStream {
+        private static final Set<String> ALLOWED = new HashSet<>(Arrays.asList(
+                "java.lang.Object", "java.lang.Number", "java.lang.Enum", "java.lang.String",
+                "java.lang.Boolean", "java.lang.Character", "java.lang.Byte", "java.lang.Short",
+                "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+                "java.math.BigDecimal", "java.math.BigInteger", "java.util.UUID", "java.util.Date",
+                "java.sql.Date", "java.sql.Time", "java.sql.Timestamp", "java.time.Ser",
+                "java.util.ArrayList", "java.util.LinkedList", "java.util.HashMap", "java.util.LinkedHashMap",
+                "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeMap", "java.util.TreeSet"));
+        private final ClassLoader loader;
+        private final Set<String> packages;
+        private final Set<String> superclasses = new HashSet<>();
+
+        SnapshotInputStream(ByteBuffer data, Class type, Set<String> packages) throws IOException {
+            super(new ByteBufferInputStream(data));
+            this.loader = type.getClassLoader();
+            this.packages = packages;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Class<?> c;
+            try {
+                c = Class.forName(desc.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                c = super.resolveClass(desc);
+            }
+            Class<?> e = c;
+            while (e.isArray()) e = e.getComponentType();
+            if (!(e.isPrimitive() || e.isEnum() || ALLOWED.contains(e.getName()) ||
+                    superclasses.contains(e.getName()) || allowedPackage(e.getName())))
+                throw new InvalidClassException(desc.getName(), "class is not allowed in saved dictionary");
+            for (Class<?> s = e.getSuperclass(); s != null; s = s.getSuperclass()) superclasses.add(s.getName());
+            return c;
+        }
+
+        private boolean allowedPackage(String name) {
+            for (String p : packages)
+                if (name.startsWith(p + ".")) return true;
+            return false;
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy class is not allowed in saved dictionary");
+        }
+    }
+
+    /**
+     * Restore dictionaries from file, if it exists, and save them to file periodically and
+     * on shutdown of JVM. Must be called after creation of DData, when dictionaries are registered.
+     * <p>Restored lists are read from file on first use of dictionary, used at once, and
+     * checked by database in background.</p>
+     * <p>Saves are made one by one by thread of dictionaries service, repeated call for the same
+     * file replaces its period.</p>
+     *
+     * @param file   file of dictionaries, local for each node of application
+     * @param period period of save, 0 or less for save on shutdown only
+     * @param unit   time unit of period
+     */
+    public void persistSnapshots(File file, long period, TimeUnit unit) {
+        restoreSnapshots(file);
+        persisted.add(file);
+        ScheduledFuture<?> previous = period > 0 ?
+                periodicSaves.put(file, executor().scheduleWithFixedDelay(() -> save(file), period, period, unit)) :
+                periodicSaves.remove(file);
+        if (previous != null) previous.cancel(false);
+        if (shutdownHook.compareAndSet(false, true))
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    executor().submit(() -> persisted.forEach(this::save)).get(30, TimeUnit.SECONDS);
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    LOG.warn("can't save dictionaries on shutdown", e);
+                }
+            }, "ddata-dictionaries-save"));
+    }
+
+    private void save(File file) {
+        try {
+            writeSnapshots(file);
+        } catch (IOException e) {
+            LOG.warn("can't save dictionaries to " + file, e);
+        }
+    }
+
+    /**
+     * Save loaded lists of dictionaries with its versions to file. File is replaced
+     * after all lists are written. Save is made by thread of dictionaries service, after
+     * saves started before.
+     *
+     * @param file file of dictionaries
+     * @throws IOException if file can't be written
+     */
+    public void saveSnapshots(File file) throws IOException {
+        try {
+            executor().submit(() -> {
+                writeSnapshots(file);
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("save of dictionaries to " + file + " is interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeSnapshots(File file) throws IOException {
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        Map<String, ByteBuffer> data = new HashMap<>();
+        for (Map.Entry<Class, SnapshotHolder> e : snapshots.entrySet()) {
+            SnapshotHolder holder = e.getValue();
+            Snapshot snapshot = holder.snapshot;
+            ByteBuffer saved = holder.saved;
+            String name = e.getKey().getName();
+            if (snapshot == null && saved != null) {
+                // not used after restore, saved as it was read
+                versions.put(name, holder.savedVersion);
+                data.put(name, saved.duplicate());
+                continue;
+            }
+            if (snapshot == null || !snapshot.indexed()) continue;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(new ArrayList<>(snapshot.list));
+            } catch (NotSerializableException ex) {
+                LOG.warn("dictionary " + name + " is not saved, not serializable " + ex.getMessage());
+                continue;
+            }
+            versions.put(name, snapshot.version);
+            data.put(name, ByteBuffer.wrap(bytes.toByteArray()));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOTS_FORMAT);
+            out.writeInt(versions.size());
+            byte[] chunk = new byte[8192];
+            for (Map.Entry<String, Integer> e : versions.entrySet()) {
+                ByteBuffer bytes = data.get(e.getKey());
+                out.writeUTF(e.getKey());
+                out.writeBoolean(e.getValue() != null);
+                out.writeInt(e.getValue() == null ? 0 : e.getValue());
+                out.writeInt(bytes.remaining());
+                while (bytes.hasRemaining()) {
+                    int n = Math.min(chunk.length, bytes.remaining());
+                    bytes.get(chunk, 0, n);
+                    out.write(chunk, 0, n);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Find lists of dictionaries in memory mapped file, each list is read on first use of
+     * its dictionary. Lists already loaded from database and lists of not registered
+     * dictionaries are skipped.
+     *
+     * @param file file of dictionaries
+     * @return count of restored dictionaries
+     */
+    public int restoreSnapshots(File file) {
+        if (!file.isFile()) return 0;
+        Map<String, Class> types = new HashMap<>();
+        for (Class type : repositories.keySet()) types.put(type.getName(), type);
+        int restored = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // mapping stays valid after close of channel
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            if (in.readInt() != SNAPSHOTS_FORMAT) {
+                LOG.warn("unknown format of dictionaries file " + file);
+                return 0;
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                String name = in.readUTF();
+                boolean hasVersion = in.readBoolean();
+                int version = in.readInt();
+                int length = in.readInt();
+                ByteBuffer data = buffer.slice();
+                data.limit(length);
+                buffer.position(buffer.position() + length);
+
+                Class type = types.get(name);
+                Object d = type == null ? null : repositories.get(type);
+                if (!(d instanceof DDataDictionary)) continue;
+                SnapshotHolder holder = snapshots.computeIfAbsent(type, k -> new SnapshotHolder());
+                synchronized (holder) {
+                    if (holder.snapshot == null) {
+                        holder.saved = data;
+                        holder.savedVersion = hasVersion ? version : null;
+                        restored++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("can't read dictionaries from " + file, e);
+        }
+        LOG.info("found " + restored + " dictionaries in " + file);
+        return restored;
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) synchronized (this) {
+            if (executor == null) executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ddata-dictionaries");
+                t.setDaemon(true);
+                return t;
+            });
         }
-        return Collections.emptyList();
+        return executor;
     }
 
     @SafeVarargs
@@ -44,6 +44,21 @@ public @interface DDataProperty {
      */
     boolean versionTo() default false;
 
+    /**
+     * Column contains time or row version of last modification of row, set by database.
+     * <p>SMALL dictionary with such column is refreshed by changed rows only when its version changes:
+     * rows modified at or after latest value of column in list are selected, and list is ordered
+     * by keys of all rows, selected on every refresh, so removed rows are dropped.
+     * Dictionary must have one id column.</p>
+     * <p>Values of column are taken before commit, so row of concurrent transaction committed
+     * with value less than latest value already read is not seen by refresh until whole list
+     * is loaded again. Time set by client clock makes this more likely, row version taken from
+     * sequence by trigger on insert and update is recommended.</p>
+     *
+     * @return default false
+     */
+    boolean modified() default false;
+
     /**
      * Is column may be NULL, default true.
      *
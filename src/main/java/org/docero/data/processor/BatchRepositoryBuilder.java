@@ -39,6 +39,8 @@ class BatchRepositoryBuilder {
             DataRepositoryBuilder beanRepository = dataBuilder.repositoriesByBean.get(bean.toString());
             supported.put(bean, new BeanData(beanBuilder, beanRepository));
         }
+        List<DataBeanBuilder> order = orderByReferences(supported.values().stream()
+                .map(d -> d.bean).collect(Collectors.toList()));
 
         try (JavaClassWriter cf = new JavaClassWriter(dataBuilder.environment, implClassName)) {
             String implPackage = implClassName.substring(0, simpNameDel);
@@ -91,6 +93,70 @@ class BatchRepositoryBuilder {
                 cf.println("}");
             }
             cf.println("\n" +
+                    "private final ThreadLocal<org.docero.data.utils.DDataBatchBuffer> buffer_ =\n" +
+                    "        ThreadLocal.withInitial(() -> new org.docero.data.utils.DDataBatchBuffer(this::flushSession_));\n" +
+                    "private volatile int maxOperations_ = org.docero.data.utils.DDataBatchBuffer.MAX_OPERATIONS;\n" +
+                    "private volatile long maxBytes_ = org.docero.data.utils.DDataBatchBuffer.MAX_BYTES;\n" +
+                    "\n" +
+                    "private org.docero.data.utils.DDataBatchBuffer buffer_() {\n" +
+                    "org.docero.data.utils.DDataBatchBuffer b = buffer_.get();\n" +
+                    "b.setLimits(maxOperations_, maxBytes_);" +
+                    (dataBuilder.spring ? "\n" +
+                            // буфер отправляется перед commit и очищается по завершению транзакции
+                            "if (org.springframework.transaction.support.TransactionSynchronizationManager" +
+                            ".isSynchronizationActive() && b.bind())\n" +
+                            "    org.springframework.transaction.support.TransactionSynchronizationManager" +
+                            ".registerSynchronization(\n" +
+                            "            new org.springframework.transaction.support.TransactionSynchronizationAdapter() {\n" +
+                            "        @Override public int getOrder() {\n" +
+                            "            return org.springframework.jdbc.datasource.DataSourceUtils" +
+                            ".CONNECTION_SYNCHRONIZATION_ORDER - 10;\n" +
+                            "        }\n" +
+                            "        @Override public void beforeCommit(boolean readOnly) {\n" +
+                            "            b.send();\n" +
+                            "        }\n" +
+                            "        @Override public void afterCompletion(int status) {\n" +
+                            "            b.clear();\n" +
+                            "            if (buffer_.get() == b) buffer_.remove();\n" +
+                            "        }\n" +
+                            "    });\n" : "\n") +
+                    "return b;\n" +
+                    "}\n" +
+                    "\n" +
+                    "private void add_(int order, String statement, long size, Runnable operation) {\n" +
+                    (dataBuilder.spring ?
+                            // вне транзакции сессия закрывается после каждого вызова, буфер пережил бы её
+                            // и остался бы в потоке для следующего запроса - выполняем сразу
+                            "if (!org.springframework.transaction.support.TransactionSynchronizationManager" +
+                                    ".isSynchronizationActive()) {\n" +
+                                    "    buffer_().send();\n" +
+                                    "    operation.run();\n" +
+                                    "} else " : "") +
+                    "buffer_().add(order, statement, size, operation);\n" +
+                    "}\n" +
+                    "\n" +
+                    "private java.util.List<org.apache.ibatis.executor.BatchResult> flushSession_() {\n" +
+                    "return ((org.mybatis.spring.SqlSessionTemplate)getSqlSession())" +
+                    ".getExecutorType()==ExecutorType.BATCH ? " +
+                    "super.getSqlSession().flushStatements() : " +
+                    "java.util.Collections.emptyList();\n" +
+                    "}\n" +
+                    "\n" +
+                    "private long nextId_(String sequence) {\n" +
+                    "try {\n" +
+                    "    return org.docero.data.utils.SequenceIds.next(\n" +
+                    "            getSqlSession().getConfiguration().getEnvironment().getDataSource(),\n" +
+                    "            getSqlSession().getConnection(), sequence);\n" +
+                    "} catch (java.sql.SQLException e) {\n" +
+                    "    throw new org.apache.ibatis.exceptions.PersistenceException(\"JDBC: \" + e.getMessage(), e);\n" +
+                    "}\n" +
+                    "}\n" +
+                    "\n" +
+                    "@Override public void setAutoFlush(int maxOperations, long maxBytes) {\n" +
+                    "maxOperations_ = maxOperations;\n" +
+                    "maxBytes_ = maxBytes;\n" +
+                    "}\n" +
+                    "\n" +
                     "@Override public <T extends java.io.Serializable> T create(Class<T> clazz) {\n" +
                     "if(clazz == null) return null;");
             for (BeanData d : supported.values()) {
@@ -100,7 +166,8 @@ class BatchRepositoryBuilder {
             cf.println("throw new IllegalArgumentException(\"unknown class for repository: \"+clazz.getCanonicalName());\n" +
                     "}\n" +
                     "@Override public <T extends java.io.Serializable> T get(Class<T> clazz, java.io.Serializable id) {\n" +
-                    "if(clazz == null || id == null) return null;");
+                    "if(clazz == null || id == null) return null;\n" +
+                    "buffer_().send();");
             for (BeanData d : supported.values()) {
                 cf.println("if (clazz == " + d.bean.interfaceType + ".class) \n" +
                         "return (T) " + d.repository.repositoryVariableName + ".get((" + d.bean.keyType + ")id);");
@@ -109,17 +176,35 @@ class BatchRepositoryBuilder {
                     "}\n" +
                     "\n" +
                     "@Override public java.util.List<org.apache.ibatis.executor.BatchResult> flushStatements() {\n" +
-                    "return ((org.mybatis.spring.SqlSessionTemplate)getSqlSession())" +
-                    ".getExecutorType()==ExecutorType.BATCH ? " +
-                    "super.getSqlSession().flushStatements() : " +
-                    "java.util.Collections.emptyList();\n" +
+                    "try {\n" +
+                    "    return buffer_.get().flush();\n" +
+                    "} finally {\n" +
+                    "    buffer_.remove();\n" +
+                    "}\n" +
                     "}\n" +
                     "\n" +
                     "@Override public void insert(java.io.Serializable bean) {\n" +
                     "if(bean == null) return;");
             for (BeanData d : supported.values()) {
-                cf.println("else if (bean instanceof " + d.bean.interfaceType + ") " +
-                        "" + d.repository.repositoryVariableName + ".insert((" + d.bean.interfaceType + ")bean);");
+                cf.println("else if (bean instanceof " + d.bean.interfaceType + ") {");
+                if (d.repository.hasBatchInsert()) {
+                    cf.println(d.bean.interfaceType + " b = (" + d.bean.interfaceType + ") bean;");
+                    for (DataBeanPropertyBuilder p : d.bean.properties.values())
+                        if (p.isGenerated())
+                            cf.println("((" + d.bean.getImplementationName() + ") b).set" +
+                                    Character.toUpperCase(p.name.charAt(0)) + p.name.substring(1) + "(" +
+                                    sequenceValue(p.type, "nextId_(\"" + p.generatedValue + "\")") + ");");
+                    String statement = d.repository.mappingClassName + ".batchInsert_";
+                    // в буфер попадает копия - изменения бина после вызова не влияют на вставку
+                    cf.println(d.bean.interfaceType + " c = ((" + d.bean.getImplementationName() + ") b).copy_();");
+                    cf.println("add_(" + order.indexOf(d.bean) + ", \"" + statement + "\", " +
+                            estimatedSize(d.bean) + "L, () -> getSqlSession().insert(\"" + statement + "\", c));");
+                } else {
+                    // ключ получается при вставке - вставляем сразу, после буфера
+                    cf.println("buffer_().send();");
+                    cf.println(d.repository.repositoryVariableName + ".insert((" + d.bean.interfaceType + ")bean);");
+                }
+                cf.println("}");
             }
             cf.println("else throw new IllegalArgumentException(\"unknown class for repository: \"+bean.getClass().getCanonicalName());\n" +
                     "}\n" +
@@ -127,8 +212,13 @@ class BatchRepositoryBuilder {
                     "@Override public void update(java.io.Serializable bean) {\n" +
                     "if(bean == null)\n return;");
             for (BeanData d : supported.values()) {
-                cf.println("else if (bean instanceof " + d.bean.interfaceType + ") " +
-                        "" + d.repository.repositoryVariableName + ".update((" + d.bean.interfaceType + ")bean);");
+                cf.println("else if (bean instanceof " + d.bean.interfaceType + ") {");
+                cf.println(d.bean.interfaceType + " c = bean instanceof " + d.bean.getImplementationName() +
+                        " ? ((" + d.bean.getImplementationName() + ") bean).copy_() : (" + d.bean.interfaceType + ") bean;");
+                cf.println("add_(" + (order.size() + order.indexOf(d.bean)) + ", \"" +
+                        d.repository.mappingClassName + ".update\", " + estimatedSize(d.bean) + "L, () -> " +
+                        d.repository.repositoryVariableName + ".update(c));");
+                cf.println("}");
             }
             cf.println("else throw new IllegalArgumentException(\"unknown class for repository: \"+bean.getClass().getCanonicalName());\n" +
                     "}");
@@ -139,6 +229,73 @@ class BatchRepositoryBuilder {
         }
     }
 
+    /**
+     * Beans referenced by other beans (by columns of them or as items of collections)
+     * go first, beans of cyclic references keep order of declaration.
+     */
+    private List<DataBeanBuilder> orderByReferences(List<DataBeanBuilder> supported) {
+        List<DataBeanBuilder> declared = beans.stream()
+                .map(t -> dataBuilder.beansByInterface.get(t.toString()))
+                .filter(supported::contains)
+                .collect(Collectors.toList());
+        HashMap<DataBeanBuilder, List<DataBeanBuilder>> references = new HashMap<>();
+        for (DataBeanBuilder bean : declared)
+            for (DataBeanPropertyBuilder property : bean.properties.values()) {
+                DataBeanBuilder mappedBean = dataBuilder.beansByInterface.get(property.mappedType.toString());
+                Mapping mapping = dataBuilder.mappings.get(bean.interfaceType + "." + property.name);
+                if (mappedBean == null || mappedBean == bean || mapping == null || !declared.contains(mappedBean))
+                    continue;
+                if (property.isCollection())
+                    references.computeIfAbsent(mappedBean, k -> new ArrayList<>()).add(bean);
+                else if (mapping.properties.stream().anyMatch(p -> !p.isId))
+                    references.computeIfAbsent(bean, k -> new ArrayList<>()).add(mappedBean);
+            }
+
+        List<DataBeanBuilder> ordered = new ArrayList<>();
+        while (ordered.size() < declared.size()) {
+            DataBeanBuilder next = declared.stream()
+                    .filter(b -> !ordered.contains(b))
+                    .filter(b -> references.getOrDefault(b, new ArrayList<>()).stream()
+                            .allMatch(ordered::contains))
+                    .findFirst()
+                    .orElseGet(() -> declared.stream().filter(b -> !ordered.contains(b)).findFirst().get());
+            ordered.add(next);
+        }
+        return ordered;
+    }
+
+    private static String sequenceValue(TypeMirror type, String value) {
+        switch (type.toString()) {
+            case "int":
+            case "java.lang.Integer":
+                return "(int) " + value;
+            case "short":
+            case "java.lang.Short":
+                return "(short) " + value;
+            case "java.math.BigInteger":
+                return "java.math.BigInteger.valueOf(" + value + ")";
+            case "java.math.BigDecimal":
+                return "java.math.BigDecimal.valueOf(" + value + ")";
+            case "java.lang.String":
+                return "String.valueOf(" + value + ")";
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Rough size of bean in memory, for limit of buffer of batch operations.
+     */
+    private static long estimatedSize(DataBeanBuilder bean) {
+        long size = 16;
+        for (DataBeanPropertyBuilder p : bean.properties.values()) {
+            if (p.type.getKind().isPrimitive()) size += 8;
+            else if ("java.lang.String".equals(p.type.toString())) size += 64;
+            else size += 32;
+        }
+        return size;
+    }
+
     private class BeanData {
         final DataBeanBuilder bean;
         final DataRepositoryBuilder repository;
@@ -214,6 +371,7 @@ class BatchRepositoryBuilder {
                         parameters.stream()
                                 .map(pp -> pp.type + " " + pp.name)
                                 .collect(Collectors.joining(",")) + ") {");
+                cf.println("buffer_().send();");
                 cf.println((returnNothing ? "" : "return ") +
                         "((" + beanRepository.repositoryInterface +
                         ") " + beanRepository.repositoryVariableName + ")." + name + "(" +
@@ -165,7 +165,9 @@ class DDataBuilder {
             cf.endBlock("*/");
             cf.println("@javax.xml.bind.annotation.XmlTransient");
             cf.startBlock("public abstract class AbstractBean<T extends java.io.Serializable> " +
-                    "implements org.docero.data.DDataComparable<T> {");
+                    "implements org.docero.data.DDataComparable<T>, org.docero.data.utils.DDataLoadedBean {");
+            cf.println("private transient Object[] loaded_;");
+            cf.println("");
             cf.startBlock("protected <P extends java.io.Serializable> P cached(Class<P> type, java.io.Serializable key) {");
             cf.println("return DData.cache(type, key);");
             cf.endBlock("}");
@@ -174,6 +176,38 @@ class DDataBuilder {
             cf.println("return key == null || key.length == 0 || (key.length == 1 && key[0] == null) ? null : DData.remote(type, func, key);");
             cf.endBlock("}");
 
+            cf.println("");
+            cf.startBlock("protected String[] stateNames_() {");
+            cf.println("return null;");
+            cf.endBlock("}");
+            cf.println("");
+            cf.startBlock("protected Object[] state_() {");
+            cf.println("return null;");
+            cf.endBlock("}");
+            cf.println("");
+            cf.startBlock("protected Object[] loadedState_() {");
+            cf.println("return loaded_;");
+            cf.endBlock("}");
+            cf.println("");
+            cf.startBlock("public void loaded_() {");
+            cf.println("loaded_ = state_();");
+            cf.endBlock("}");
+            cf.println("");
+            cf.startBlock("public T loadedCopy_() {");
+            cf.println("return null;");
+            cf.endBlock("}");
+            cf.println("");
+            cf.println("/* names of properties changed after load, or null if bean state is unknown */");
+            cf.startBlock("public java.util.Set<String> changed_() {");
+            cf.println("if (loaded_ == null) return null;");
+            cf.println("Object[] s = state_();");
+            cf.println("String[] names = stateNames_();");
+            cf.println("java.util.Set<String> changed = new java.util.HashSet<>();");
+            cf.println("for (int i = 0; i < s.length; i++)");
+            cf.println("    if (!java.util.Objects.deepEquals(s[i], loaded_[i])) changed.add(names[i]);");
+            cf.println("return changed;");
+            cf.endBlock("}");
+
             cf.println("");
             cf.startBlock("protected int compare(Object o1, Object o2) {");
             cf.println("if (o1 == null) return o2 == null ? 0 : -1;");
@@ -357,6 +391,8 @@ class DDataBuilder {
                 }
                 cf.endBlock("}");
                 cf.println("abstract protected C save(T bean,org.docero.data.utils.UpdateOptions updateOptions, org.docero.data.DData dData,java.util.Set Set);");
+                cf.startBlock("public void preload(java.util.Collection<? extends T> beans, org.docero.data.utils.SavedBeans savedBeans, org.docero.data.DData dData) {");
+                cf.endBlock("}");
                 cf.endBlock("}");
             }
             abstractRepositoryCreated.add(beanPkg);
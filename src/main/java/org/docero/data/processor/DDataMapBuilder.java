@@ -3,6 +3,7 @@ package org.docero.data.processor;
 import org.docero.data.DDataFetchType;
 import org.docero.data.DDataFilterOption;
 import org.docero.data.DictionaryType;
+import org.docero.data.GenerationType;
 import org.docero.data.utils.DDataException;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentType;
@@ -122,6 +123,19 @@ class DDataMapBuilder {
                             new DDataMethodBuilder(repository, bean, DDataMethodBuilder.MType.SELECT, keyElement),
                             defaultFetchOptions, repository);
             }
+            if (bean.versionalType == null && !bean.isDictionary())
+                createGetByKeys(mapperRoot, bean);
+            if (repository.hasUpsert())
+                createUpsert(mapperRoot, repository, bean, defaultFetchOptions);
+            if (repository.isTracked())
+                createUpdateChanged(mapperRoot, bean, defaultFetchOptions);
+            if (repository.hasBatchInsert())
+                createBatchInsert(mapperRoot, repository, bean, defaultFetchOptions);
+            if (bean.modifiedProperty() != null)
+                createDictionaryDelta(mapperRoot, bean);
+            for (DataBeanPropertyBuilder property : bean.properties.values())
+                if (repository.hasOrphansDelete(property))
+                    createDeleteOrphans(mapperRoot, bean, property);
             repository.lazyLoads.values().forEach(mapperRoot::appendChild);
             mapperRoot.setAttribute("namespace", repositoryNamespace);
 
@@ -236,7 +250,7 @@ class DDataMapBuilder {
             cf.startBlock("{");
             cf.startBlock("if (dData.getBeanRepository(beanInterface) instanceof AbstractModuleRepository) {");
             cf.println("    AbstractModuleRepository beanRepository = (AbstractModuleRepository) dData.getBeanRepository(beanInterface);");
-            cf.println("    C key = (C) beanRepository.save(t, updateOptions, dData, new java.util.HashSet());");
+            cf.println("    C key = (C) beanRepository.save(t, updateOptions, dData, new org.docero.data.utils.SavedBeans());");
             cf.println("    if (key != null)");
             cf.println("       return (T) beanRepository.get(key);");
             cf.println("    else");
@@ -244,6 +258,25 @@ class DDataMapBuilder {
             cf.endBlock("} else return null;");
             cf.endBlock("}");
 
+            cf.startBlock("public <T extends java.io.Serializable> java.util.List<T> saveAll(");
+            cf.println("java.util.Collection<T> beans,");
+            cf.println("Class beanInterface,");
+            cf.println("org.apache.ibatis.session.SqlSessionFactory sqlSessionFactory,");
+            cf.println("org.docero.data.utils.UpdateOptions updateOptions,");
+            cf.println("org.docero.data.DData dData");
+            cf.endBlock(")");
+            cf.startBlock("{");
+            cf.startBlock("if (dData.getBeanRepository(beanInterface) instanceof AbstractModuleRepository) {");
+            cf.println("    AbstractModuleRepository beanRepository = (AbstractModuleRepository) dData.getBeanRepository(beanInterface);");
+            cf.println("    org.docero.data.utils.SavedBeans savedBeans = new org.docero.data.utils.SavedBeans();");
+            cf.println("    beanRepository.preload(beans, savedBeans, dData);");
+            cf.startBlock("    try (org.docero.data.utils.DMLOperations dml = new org.docero.data.utils.DMLOperations().setFastUpdates()) {");
+            cf.println("for (T t : beans) beanRepository.save(t, updateOptions, dData, savedBeans);");
+            cf.endBlock("}");
+            cf.println("    return new java.util.ArrayList<>(beans);");
+            cf.endBlock("} else return null;");
+            cf.endBlock("}");
+
             cf.println("");
             cf.startBlock("private static final String[] cacheNames = new String[] {");
             String cnames = builder.beansByInterface.values().stream()
@@ -556,7 +589,7 @@ class DDataMapBuilder {
                 method.methodName + (method.methodIndex == 0 ? "" : "_" + method.methodIndex);
         switch (method.methodType) {
             case SELECT:
-                if (method.methodIndex == 0) createDictionaryList(mapperRoot, fetchOptions);
+                if (method.methodIndex == 0) createDictionaryList(mapperRoot, bean, fetchOptions);
             case GET:
                 if (!method.returnSimpleType)
                     buildResultMap(mapperRoot, repository, methodName, fetchOptions, mappedTables, filters);
@@ -1166,6 +1199,193 @@ class DDataMapBuilder {
         return !this.builder.isSimpleMappedType(propertyBuilder.mappedType);
     }
 
+    /**
+     * Select of beans by list of keys, used for preload of beans saved at once.
+     * Uses select and result map of default get method.
+     */
+    private void createGetByKeys(org.w3c.dom.Element mapperRoot, DataBeanBuilder bean) {
+        Document doc = mapperRoot.getOwnerDocument();
+        org.w3c.dom.Element select = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("select"));
+        select.setAttribute("id", "getByKeys_");
+        select.setAttribute("parameterType", "java.util.List");
+        select.setAttribute("resultMap", "get_ResultMap");
+        org.w3c.dom.Element sqli = (org.w3c.dom.Element)
+                select.appendChild(doc.createElement("include"));
+        sqli.setAttribute("refid", "get_select");
+        select.appendChild(doc.createTextNode("\nWHERE "));
+        org.w3c.dom.Element foreach = (org.w3c.dom.Element)
+                select.appendChild(doc.createElement("foreach"));
+        foreach.setAttribute("collection", "list");
+        foreach.setAttribute("item", "k");
+        foreach.setAttribute("open", "(");
+        foreach.setAttribute("separator", " OR ");
+        foreach.setAttribute("close", ")");
+        foreach.appendChild(doc.createTextNode("(" + bean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(p -> p.isId)
+                .map(p -> "t0." + p.getColumnRef() + " = " +
+                        buildSqlParameter(bean, p, bean.isKeyComposite ? "k." + p.name : "k"))
+                .collect(Collectors.joining(" AND ")) + ")"));
+    }
+
+    /**
+     * Insert of bean with ids set before call, used by buffer of batch repository.
+     */
+    private void createBatchInsert(
+            org.w3c.dom.Element mapperRoot, DataRepositoryBuilder repository, DataBeanBuilder bean,
+            FetchOptions fetchOptions
+    ) {
+        Document doc = mapperRoot.getOwnerDocument();
+        org.w3c.dom.Element insert = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("insert"));
+        insert.setAttribute("id", "batchInsert_");
+        insert.setAttribute("parameterType", bean.getImplementationName());
+        StringBuilder sql = new StringBuilder();
+        generateInsertForBean(sql, repository, bean, fetchOptions);
+        insert.appendChild(doc.createTextNode(sql.toString()));
+    }
+
+    /**
+     * Delete of items removed from collection of bean, parameters are 'bean' and
+     * list of 'keys' of deleted items.
+     */
+    private void createDeleteOrphans(
+            org.w3c.dom.Element mapperRoot, DataBeanBuilder bean, DataBeanPropertyBuilder property
+    ) {
+        Document doc = mapperRoot.getOwnerDocument();
+        DataBeanBuilder mappedBean = builder.beansByInterface.get(property.mappedType.toString());
+        Mapping mapping = builder.mappings.get(bean.interfaceType + "." + property.name);
+        List<DataBeanPropertyBuilder> ids = mappedBean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(p -> p.isId)
+                .collect(Collectors.toList());
+        org.w3c.dom.Element delete = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("delete"));
+        delete.setAttribute("id", "deleteOrphans_" +
+                Character.toUpperCase(property.name.charAt(0)) + property.name.substring(1));
+        delete.setAttribute("parameterType", "HashMap");
+        delete.appendChild(doc.createTextNode("\nDELETE FROM " + mappedBean.getTableRef() + "\nWHERE " +
+                mapping.stream()
+                        .map(m -> m.mappedProperty.getColumnRef() + " = " +
+                                buildSqlParameter(bean, m.property, "bean." + m.property.name))
+                        .collect(Collectors.joining(" AND ")) +
+                (mappedBean.isKeyComposite ? " AND " : " AND " + ids.get(0).getColumnRef() + " IN ")));
+        org.w3c.dom.Element foreach = (org.w3c.dom.Element)
+                delete.appendChild(doc.createElement("foreach"));
+        foreach.setAttribute("collection", "keys");
+        foreach.setAttribute("item", "k");
+        foreach.setAttribute("open", "(");
+        foreach.setAttribute("separator", mappedBean.isKeyComposite ? " OR " : ", ");
+        foreach.setAttribute("close", ")");
+        foreach.appendChild(doc.createTextNode(mappedBean.isKeyComposite ?
+                "(" + ids.stream()
+                        .map(p -> p.getColumnRef() + " = " + buildSqlParameter(mappedBean, p, "k." + p.name))
+                        .collect(Collectors.joining(" AND ")) + ")" :
+                buildSqlParameter(mappedBean, ids.get(0), "k")));
+    }
+
+    /**
+     * Update of columns changed after bean was loaded, parameters are 'bean' and set of names
+     * of 'changed' properties.
+     */
+    private void createUpdateChanged(
+            org.w3c.dom.Element mapperRoot, DataBeanBuilder bean, FetchOptions fetchOptions
+    ) {
+        Document doc = mapperRoot.getOwnerDocument();
+        org.w3c.dom.Element update = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("update"));
+        update.setAttribute("id", "updateChanged_");
+        update.setAttribute("parameterType", "HashMap");
+        update.appendChild(doc.createTextNode("\nUPDATE " + bean.getTableRef() + "\n"));
+        org.w3c.dom.Element set = (org.w3c.dom.Element)
+                update.appendChild(doc.createElement("set"));
+        bean.trackedProperties().stream()
+                .filter(DataBeanPropertyBuilder::notId)
+                .filter(p -> filterIgnored(fetchOptions, p))
+                .forEach(p -> {
+                    org.w3c.dom.Element ifChanged = (org.w3c.dom.Element)
+                            set.appendChild(doc.createElement("if"));
+                    ifChanged.setAttribute("test", "changed.contains(\"" + p.name + "\")");
+                    ifChanged.appendChild(doc.createTextNode(p.getColumnRef() + " = " +
+                            buildSqlParameter(bean, p, "bean." + p.name) + ",\n"));
+                });
+        update.appendChild(doc.createTextNode("\nWHERE " + bean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(p -> p.isId)
+                .map(p -> p.getColumnRef() + " = " + buildSqlParameter(bean, p, "bean." + p.name))
+                .collect(Collectors.joining(" AND ")) + "\n"));
+    }
+
+    /**
+     * Insert or update of bean by one statement: INSERT ... ON CONFLICT on PostgreSQL (default),
+     * MERGE for databaseId 'h2'. Generated ids are taken from sequence only if they are null.
+     */
+    private void createUpsert(
+            org.w3c.dom.Element mapperRoot, DataRepositoryBuilder repository, DataBeanBuilder bean,
+            FetchOptions fetchOptions
+    ) {
+        Document doc = mapperRoot.getOwnerDocument();
+        StringBuilder insertSql = new StringBuilder();
+        generateInsertForBean(insertSql, repository, bean, fetchOptions);
+        String ids = bean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(p -> p.isId)
+                .map(DataBeanPropertyBuilder::getColumnRef)
+                .collect(Collectors.joining(", "));
+        String updates = bean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(DataBeanPropertyBuilder::notId)
+                .filter(DataBeanPropertyBuilder::notCollectionOrMap)
+                .filter(p -> filterIgnored(fetchOptions, p))
+                .filter(this::notManagedBean)
+                .map(p -> p.getColumnRef() + " = EXCLUDED." + p.getColumnRef())
+                .collect(Collectors.joining(",\n"));
+
+        org.w3c.dom.Element upsert = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("insert"));
+        upsert.setAttribute("id", "upsert_");
+        upsert.setAttribute("parameterType", bean.getImplementationName());
+        generateValuesForUpsert(bean, upsert);
+        upsert.appendChild(doc.createTextNode(insertSql + "ON CONFLICT (" + ids + ") DO " +
+                (updates.isEmpty() ? "NOTHING\n" : "UPDATE SET\n" + updates + "\n")));
+
+        org.w3c.dom.Element merge = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("insert"));
+        merge.setAttribute("id", "upsert_");
+        merge.setAttribute("databaseId", "h2");
+        merge.setAttribute("parameterType", bean.getImplementationName());
+        generateValuesForUpsert(bean, merge);
+        merge.appendChild(doc.createTextNode(insertSql.toString()
+                .replaceFirst("\nINSERT INTO ", "\nMERGE INTO ")
+                .replaceFirst("\\)\nVALUES \\(", ") KEY (" + java.util.regex.Matcher.quoteReplacement(ids) + ")\nVALUES (")));
+    }
+
+    private void generateValuesForUpsert(DataBeanBuilder bean, org.w3c.dom.Element domElement) {
+        Document doc = domElement.getOwnerDocument();
+        bean.properties.values().stream()
+                .filter(DataBeanPropertyBuilder::isGenerated)
+                .forEach(prop -> {
+                    org.w3c.dom.Element sk = (org.w3c.dom.Element)
+                            domElement.appendChild(doc.createElement("selectKey"));
+                    sk.setAttribute("keyProperty", prop.name);
+                    sk.setAttribute("resultType", prop.type.toString());
+                    sk.setAttribute("statementType", "PREPARED");
+                    sk.setAttribute("order", "BEFORE");
+                    String generated = prop.generatedStrategy == GenerationType.SEQUENCE ?
+                            "nextval('" + prop.generatedValue + "')" :
+                            "(" + prop.generatedValue.trim().replaceAll(";$", "") + ")";
+                    // 0 у числового id - значение не задано, как в DDataView.idIsNull
+                    boolean isNumber = prop.type.getKind().isPrimitive() ?
+                            builder.numericType.toString().equals(environment.getTypeUtils()
+                                    .boxedClass((PrimitiveType) prop.type).getSuperclass().toString()) :
+                            environment.getTypeUtils().isSubtype(prop.type, builder.numericType);
+                    String value = buildSqlParameter(bean, prop);
+                    sk.appendChild(doc.createTextNode("SELECT COALESCE(" +
+                            (isNumber ? "NULLIF(" + value + ", 0)" : value) + ", " + generated + ")"));
+                });
+    }
+
     private void buildSelect4DefaultGet(
             org.w3c.dom.Element domElement,
             StringBuilder sql
@@ -1555,6 +1775,15 @@ class DDataMapBuilder {
             return beanProperty.getColumnWriter(jdbcTypeParameterFor(beanProperty.name, beanProperty.type));
     }
 
+    private String buildSqlParameter(DataBeanBuilder dataBean, DataBeanPropertyBuilder beanProperty, String parameter) {
+        Mapping mapping = builder.mappings.get(dataBean.interfaceType.toString() + "." + beanProperty.name);
+        if (mapping != null) {
+            TypeMirror mappedType = mapping.mappedProperties.get(0).type;
+            return beanProperty.getColumnWriter(jdbcTypeParameterFor(parameter, mappedType));
+        } else
+            return beanProperty.getColumnWriter(jdbcTypeParameterFor(parameter, beanProperty.type));
+    }
+
     private String buildSqlParameter(DDataMapBuilder.FilterOption option) {
         return option.property == null ? "UNKNOWN_" : option.property.getColumnWriter(jdbcTypeParameterFor(option.parameter, option.property.type));
     }
@@ -1859,7 +2088,9 @@ class DDataMapBuilder {
         }
     }
 
-    private void createDictionaryList(org.w3c.dom.Element mapperRoot, FetchOptions fetchOptions) {
+    private void createDictionaryList(
+            org.w3c.dom.Element mapperRoot, DataBeanBuilder bean, FetchOptions fetchOptions
+    ) {
         Document doc = mapperRoot.getOwnerDocument();
         org.w3c.dom.Element select = (org.w3c.dom.Element)
                 mapperRoot.appendChild(doc.createElement("select"));
@@ -1868,14 +2099,48 @@ class DDataMapBuilder {
         org.w3c.dom.Element include = (org.w3c.dom.Element)
                 select.appendChild(doc.createElement("include"));
         include.setAttribute("refid", "get_select");
-        if (!fetchOptions.order.isEmpty()) {
-            select.appendChild(doc.createTextNode("ORDER BY " +
-                    fetchOptions.order.keySet().stream()
-                            .map(o -> o.getColumnRef() + " " + fetchOptions.order.get(o))
-                            .collect(Collectors.joining(", "))));
+        String order = fetchOptions.order.isEmpty() ? "" : "ORDER BY " +
+                fetchOptions.order.keySet().stream()
+                        .map(o -> o.getColumnRef() + " " + fetchOptions.order.get(o))
+                        .collect(Collectors.joining(", "));
+        if (!order.isEmpty())
+            select.appendChild(doc.createTextNode(order));
+
+        if (bean.modifiedProperty() != null) {
+            // ключи в том же порядке, что и список - по ним собирается список при обновлении
+            DataBeanPropertyBuilder id = bean.properties.values().stream()
+                    .filter(DataBeanPropertyBuilder::notIgnored)
+                    .filter(p -> p.isId)
+                    .findAny().orElseThrow(() -> new RuntimeException("No id property in " + bean.interfaceType));
+            org.w3c.dom.Element keys = (org.w3c.dom.Element)
+                    mapperRoot.appendChild(doc.createElement("select"));
+            keys.setAttribute("id", "dictionaryKeys_");
+            keys.setAttribute("resultType", bean.inversionalKey);
+            keys.appendChild(doc.createTextNode("\nSELECT " + id.getColumnRef() + " FROM " + bean.getTableRef() + "\n" +
+                    order));
         }
     }
 
+    /**
+     * Select of rows modified since parameter 'since', used for refresh of dictionary by changed
+     * rows. Keys of all rows are selected with list of dictionary, in the same order.
+     */
+    private void createDictionaryDelta(org.w3c.dom.Element mapperRoot, DataBeanBuilder bean) {
+        Document doc = mapperRoot.getOwnerDocument();
+        DataBeanPropertyBuilder modified = bean.modifiedProperty();
+
+        org.w3c.dom.Element changed = (org.w3c.dom.Element)
+                mapperRoot.appendChild(doc.createElement("select"));
+        changed.setAttribute("id", "dictionaryChanged_");
+        changed.setAttribute("parameterType", "Map");
+        changed.setAttribute("resultMap", "get_ResultMap");
+        org.w3c.dom.Element include = (org.w3c.dom.Element)
+                changed.appendChild(doc.createElement("include"));
+        include.setAttribute("refid", "get_select");
+        changed.appendChild(doc.createTextNode("\nWHERE t0." + modified.getColumnRef() + " >= " +
+                buildSqlParameter(bean, modified, "since") + "\n"));
+    }
+
     class FilterOption {
         final DDataFilterOption option;
         final DataBeanPropertyBuilder property;
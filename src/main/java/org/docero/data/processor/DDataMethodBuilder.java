@@ -200,7 +200,8 @@ class DDataMethodBuilder {
         List<MappedDictionary> dictionariesUpdatedByThis_temp = methodType == GET ? new ArrayList<>() :
                 searchForDictionariesUseThisBean(parameters, methodType == UPDATE);
 
-        if (bean.dictionary != DictionaryType.NO && repositoryBuilder.rootBuilder.useSpringCache && methodIndex == 0) {
+        // LARGE dictionaries are cached by DDataDictionariesService, not by spring cache
+        if (bean.dictionary == DictionaryType.SMALL && repositoryBuilder.rootBuilder.useSpringCache && methodIndex == 0) {
             switch (methodType) {
                 case GET:
                     cf.println("@org.springframework.cache.annotation.Cacheable(cacheNames=\"" + bean.cacheMap +
@@ -217,6 +218,12 @@ class DDataMethodBuilder {
             }
         }
 
+        List<String> largeUpdatedByThis = dictionariesUpdatedByThis_temp.stream()
+                .filter(d -> d.bean.dictionary == DictionaryType.LARGE)
+                .map(d -> d.bean).distinct()
+                .map(d -> d.interfaceType.toString())
+                .collect(Collectors.toList());
+        dictionariesUpdatedByThis_temp.removeIf(d -> d.bean.dictionary == DictionaryType.LARGE);
         List<MappedDictionary> dictionariesUpdatedByThis = dictionariesUpdatedByThis_temp.stream()
                 .filter(d ->
                         d.cacheKey == null || dictionariesUpdatedByThis_temp.stream()
@@ -318,7 +325,8 @@ class DDataMethodBuilder {
                     }
                 cf.print("getSqlSession().insert");
                 cf.print("(\"" + insertId + "\"");
-                if (bean.dictionary != DictionaryType.NO && !repositoryBuilder.rootBuilder.useSpringCache)
+                if (bean.dictionary == DictionaryType.LARGE ||
+                        (bean.dictionary != DictionaryType.NO && !repositoryBuilder.rootBuilder.useSpringCache))
                     cacheFunction = "cache(" + beanParameterName + ");";
                 break;
             case UPDATE:
@@ -345,7 +353,8 @@ class DDataMethodBuilder {
                     }
                 cf.print("getSqlSession().update");
                 cf.print("(\"" + updateId + "\"");
-                if (bean.dictionary != DictionaryType.NO && !repositoryBuilder.rootBuilder.useSpringCache)
+                if (bean.dictionary == DictionaryType.LARGE ||
+                        (bean.dictionary != DictionaryType.NO && !repositoryBuilder.rootBuilder.useSpringCache))
                     cacheFunction = "cache(" + beanParameterName + ");";
                 break;
             default: // DELETE
@@ -353,6 +362,9 @@ class DDataMethodBuilder {
                         .noneMatch(d -> d.bean == bean))
                     cf.println("updateVersion(" + repositoryBuilder.forInterfaceName() + ".class);");
                 cf.print("getSqlSession().delete(\"" + deleteId + "\"");
+                if (bean.dictionary == DictionaryType.LARGE)
+                    cacheFunction = "evict(" + repositoryBuilder.forInterfaceName() + ".class, " +
+                            (methodIndex == 0 && parameters.size() == 1 ? parameters.get(0).name : "null") + ");";
         }
 
         if (parameters.size() > 0) {
@@ -392,6 +404,8 @@ class DDataMethodBuilder {
         }
 
         if (cacheFunction != null) cf.println(cacheFunction);
+        for (String largeType : largeUpdatedByThis)
+            cf.println("evict(" + largeType + ".class, null);");
 
         if (dictionariesUpdatedByThis != null)
             for (MappedDictionary d : dictionariesUpdatedByThis)
@@ -7,8 +7,10 @@ import org.docero.dgen.processor.DGenClass;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.xml.bind.annotation.XmlSchema;
 import java.io.IOException;
@@ -424,6 +426,9 @@ class DataBeanBuilder {
             cf.println(notFirst ? "return r;" : "return 0;");
             cf.endBlock("}");
 
+            buildCopy(cf, className.substring(simpNameDel + 1));
+            if (isTracked()) buildTrackedState(environment, cf, className.substring(simpNameDel + 1));
+
             if (prototype) {
                 cf.startBlock("private int compare(Object o1, Object o2) {");
                 cf.println("if (o1 == null) return o2 == null ? 0 : -1;");
@@ -438,6 +443,131 @@ class DataBeanBuilder {
         }
     }
 
+    /**
+     * Copy of values of bean for operations sent later by batch repository, mapped beans
+     * and collections are not copied, arrays and dates are.
+     */
+    private void buildCopy(JavaClassWriter cf, String simpleName) throws IOException {
+        cf.println("");
+        cf.startBlock("public " + interfaceType + " copy_() {");
+        cf.println(simpleName + " c = new " + simpleName + "();");
+        for (DataBeanPropertyBuilder p : properties.values())
+            if (p.hasField())
+                cf.println("c." + p.name + " = " + (isCloned(p.type) ?
+                        p.name + " == null ? null : (" + p.type + ") " + p.name + ".clone();" : p.name + ";"));
+        if (isKeyComposite && versionalType != null)
+            cf.println("c.dDataBeanActualAt_ = dDataBeanActualAt_;");
+        cf.println("return c;");
+        cf.endBlock("}");
+    }
+
+    /**
+     * State of columns taken by AbstractBean when bean is loaded and copy of bean
+     * with loaded values, used by save instead of reading bean from database.
+     */
+    private void buildTrackedState(
+            ProcessingEnvironment environment, JavaClassWriter cf, String simpleName
+    ) throws IOException {
+        List<DataBeanPropertyBuilder> tracked = trackedProperties();
+        cf.println("");
+        cf.println("private static final String[] STATE_NAMES_ = {" + tracked.stream()
+                .map(p -> "\"" + p.name + "\"")
+                .collect(Collectors.joining(", ")) + "};");
+        cf.println("");
+        cf.startBlock("protected String[] stateNames_() {");
+        cf.println("return STATE_NAMES_;");
+        cf.endBlock("}");
+        cf.println("");
+        cf.startBlock("protected Object[] state_() {");
+        // mutable values are copied, so changes of them are found
+        cf.println("return new Object[]{" + tracked.stream()
+                .map(p -> isCloned(p.type) ?
+                        p.name + " == null ? null : (" + p.type + ") " + p.name + ".clone()" : p.name)
+                .collect(Collectors.joining(", ")) + "};");
+        cf.endBlock("}");
+        cf.println("");
+        cf.println("@SuppressWarnings(\"unchecked\")");
+        cf.startBlock("public " + interfaceType + " loadedCopy_() {");
+        cf.println("Object[] s = loadedState_();");
+        cf.println("if (s == null) return null;");
+        cf.println(simpleName + " c = new " + simpleName + "();");
+        for (int i = 0; i < tracked.size(); i++) {
+            DataBeanPropertyBuilder p = tracked.get(i);
+            String type = p.type.getKind().isPrimitive() ?
+                    environment.getTypeUtils().boxedClass((PrimitiveType) p.type).toString() :
+                    p.type.toString();
+            cf.println("c." + p.name + " = (" + type + ") s[" + i + "];");
+        }
+        for (DataBeanPropertyBuilder p : properties.values())
+            if (!tracked.contains(p)) cf.println("c." + p.name + " = " + p.name + ";");
+        cf.println("return c;");
+        cf.endBlock("}");
+    }
+
+    /**
+     * Bean which table columns are all its properties, without mapped beans, versions and
+     * discriminator. Changes of such bean may be found by state taken on load, so values
+     * of its columns must be immutable or copied to state (arrays and dates).
+     *
+     * @return true if implementation has tracked state
+     */
+    boolean isTracked() {
+        return !prototype && !abstractBean && versionalType == null && discriminatorProperty == null &&
+                properties.values().stream().allMatch(p ->
+                        rootBuilder.beansByInterface.get(p.mappedType.toString()) == null &&
+                                rootBuilder.mappings.get(interfaceType + "." + p.name) == null) &&
+                trackedProperties().stream().allMatch(p -> isImmutable(p.type) || isCloned(p.type));
+    }
+
+    private static boolean isImmutable(TypeMirror type) {
+        if (type.getKind().isPrimitive()) return true;
+        if (type.getKind() != TypeKind.DECLARED) return false;
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) return true;
+        String name = element.toString();
+        return name.startsWith("java.time.") || IMMUTABLE_TYPES.contains(name);
+    }
+
+    private static final java.util.Set<String> IMMUTABLE_TYPES = new java.util.HashSet<>(java.util.Arrays.asList(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Character", "java.lang.Byte",
+            "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+            "java.math.BigDecimal", "java.math.BigInteger", "java.util.UUID"));
+
+    /**
+     * @return true if value of type is copied by clone() to tracked state
+     */
+    private static boolean isCloned(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY)
+            return isImmutable(((ArrayType) type).getComponentType());
+        if (type.getKind() != TypeKind.DECLARED) return false;
+        String name = ((DeclaredType) type).asElement().toString();
+        return name.equals("java.util.Date") || name.equals("java.sql.Date") ||
+                name.equals("java.sql.Timestamp") || name.equals("java.sql.Time");
+    }
+
+    /**
+     * @return property with time or version of last modification, if SMALL dictionary may be
+     * refreshed by changed rows only
+     */
+    DataBeanPropertyBuilder modifiedProperty() {
+        if (dictionary != DictionaryType.SMALL || versionalType != null || isKeyComposite) return null;
+        return properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(p -> p.isModified)
+                .findAny().orElse(null);
+    }
+
+    /**
+     * @return properties written by update, in order of tracked state
+     */
+    List<DataBeanPropertyBuilder> trackedProperties() {
+        return properties.values().stream()
+                .filter(DataBeanPropertyBuilder::notIgnored)
+                .filter(DataBeanPropertyBuilder::notCollectionOrMap)
+                .sorted(Comparator.comparing(p -> p.name))
+                .collect(Collectors.toList());
+    }
+
     private boolean printCompareBlock(
             JavaClassWriter cf, DataBeanPropertyBuilder property, boolean notFirst
     ) throws IOException {
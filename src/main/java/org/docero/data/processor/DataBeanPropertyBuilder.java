@@ -33,6 +33,7 @@ class DataBeanPropertyBuilder {
     final TypeMirror mappedType;
     final boolean isVersionFrom;
     final boolean isVersionTo;
+    final boolean isModified;
     final GenerationType generatedStrategy;
     final String generatedValue;
     final boolean generatedBefore;
@@ -106,6 +107,7 @@ class DataBeanPropertyBuilder {
         nullable = (ddProperty == null || ddProperty.nullable()) && !type.getKind().isPrimitive();
         isVersionFrom = ddProperty != null && ddProperty.versionFrom();
         isVersionTo = ddProperty != null && ddProperty.versionTo();
+        isModified = ddProperty != null && ddProperty.modified();
         length = ddProperty == null ? 0 : ddProperty.length();
         if (ddProperty != null && ddProperty.value().length() > 0) {
             columnName = ignored ? null : ddProperty.value();
@@ -212,7 +214,7 @@ class DataBeanPropertyBuilder {
         if (mappedBean != null) {
             Mapping mapping = this.dataBean.rootBuilder.mappings.get(this.dataBean.interfaceType + "." + this.name);
             boolean isTransient = mapping != null && mapping.markTransient;
-            if (mappedBean.dictionary != DictionaryType.SMALL || isCollection) {
+            if (hasField()) {
                 cf.println((isTransient ? "private transient " : "private ") + type.toString() + " " + name + ";");
             }
         } else {
@@ -220,6 +222,14 @@ class DataBeanPropertyBuilder {
         }
     }
 
+    /**
+     * @return false for SMALL dictionary bean mapped by column, it's taken from cache by getter
+     */
+    boolean hasField() {
+        DataBeanBuilder mappedBean = this.dataBean.rootBuilder.beansByInterface.get(mappedType.toString());
+        return mappedBean == null || mappedBean.dictionary != DictionaryType.SMALL || isCollection;
+    }
+
     private void printKnownXmlAdapters(
             JavaClassWriter cf, TypeMirror type,
             List<MethodAnnotationInfo> annotations
@@ -4,6 +4,7 @@ import org.docero.data.DDataRep;
 import org.docero.data.DDataRepository;
 import org.docero.data.DDataVersionalRepository;
 import org.docero.data.DictionaryType;
+import org.docero.data.GenerationType;
 import org.docero.data.remote.DDataPrototypeRealization;
 import org.docero.data.utils.DDataDictionary;
 
@@ -163,6 +164,89 @@ class DataRepositoryBuilder {
         hasInsert = false;
     }
 
+    /**
+     * Upsert statement is generated for beans of one type, not versional, with ids
+     * known or generated before insert.
+     *
+     * @return true if repository has upsert_ method
+     */
+    boolean hasUpsert() {
+        DataBeanBuilder bean = rootBuilder.beansByInterface.get(forInterfaceName());
+        return bean != null && discriminator == null && bean.versionalType == null && !bean.isDictionary() &&
+                bean.properties.values().stream()
+                        .filter(DataBeanPropertyBuilder::isGenerated)
+                        .allMatch(p -> p.generatedStrategy == GenerationType.SEQUENCE ||
+                                (p.generatedStrategy == GenerationType.SELECT && p.generatedBefore));
+    }
+
+    /**
+     * Inserts of batch repository are buffered for beans which ids may be taken from sequence
+     * before insert, such beans have statement batchInsert_ without selectKey.
+     *
+     * @return true if mapper has batchInsert_ statement
+     */
+    boolean hasBatchInsert() {
+        DataBeanBuilder bean = rootBuilder.beansByInterface.get(forInterfaceName());
+        return bean != null && discriminator == null && bean.versionalType == null &&
+                bean.properties.values().stream()
+                        .filter(DataBeanPropertyBuilder::isGenerated)
+                        .allMatch(p -> p.generatedStrategy == GenerationType.SEQUENCE) &&
+                rootBuilder.batchRepositories.stream()
+                        .anyMatch(b -> b.beans.stream().anyMatch(t -> t.toString().equals(forInterfaceName())));
+    }
+
+    /**
+     * Save of tracked bean compares it with state taken on load and updates only
+     * changed columns, see {@link DataBeanBuilder#isTracked()}. Changed bean which row
+     * is deleted after load is inserted, but bean saved without changes isn't checked
+     * in database and its deleted row isn't restored.
+     *
+     * @return true if repository has updateChanged_ method
+     */
+    boolean isTracked() {
+        DataBeanBuilder bean = rootBuilder.beansByInterface.get(forInterfaceName());
+        return bean != null && discriminator == null && bean.isTracked();
+    }
+
+    /**
+     * Items of one to many collection are saved with their database state taken from
+     * collection of bean read from database, and by preload of the rest, instead of get
+     * of every item.
+     *
+     * @param property collection property of bean
+     * @return true if save of bean preloads items of collection
+     */
+    boolean preloadsChildren(DataBeanPropertyBuilder property) {
+        Mapping mapping = rootBuilder.mappings.get(property.dataBean.interfaceType + "." + property.name);
+        DataBeanBuilder mappedBean = rootBuilder.beansByInterface.get(property.mappedType.toString());
+        return property.isCollection() && mapping != null && mapping.func == null &&
+                mapping.stream().findAny().isPresent() &&
+                mappedBean != null && mappedBean.versionalType == null && !mappedBean.isDictionary() &&
+                mappedBean.properties.values().stream().anyMatch(p -> p.isId && p.notIgnored()) &&
+                rootBuilder.repositoriesByBean.get(property.mappedType.toString()) != null;
+    }
+
+    /**
+     * Items removed from one to many collection are deleted by one statement
+     * 'deleteOrphans_' + name of property, instead of delete of every item.
+     * Only if delete of item is plain: repository of item has no own delete statement,
+     * and no dictionary maps item (its delete evicts cache of dictionary), otherwise
+     * items are deleted by repository one by one.
+     *
+     * @param property collection property of bean
+     * @return true if repository has deleteOrphans_ method for property
+     */
+    boolean hasOrphansDelete(DataBeanPropertyBuilder property) {
+        if (!preloadsChildren(property)) return false;
+        DataRepositoryBuilder itemRepository = rootBuilder.repositoriesByBean.get(property.mappedType.toString());
+        DataBeanBuilder mappedBean = rootBuilder.beansByInterface.get(property.mappedType.toString());
+        return itemRepository.discriminator == null &&
+                (itemRepository.defaultDeleteMethod == null || itemRepository.defaultDeleteMethod.deleteId == null) &&
+                rootBuilder.mappings.values().stream().noneMatch(m ->
+                        m.mappedProperties.get(0).dataBean == mappedBean &&
+                                m.properties.get(0).dataBean.isDictionary());
+    }
+
     String forInterfaceName() {
         return forInterfaceName == null ?
                 "invalid." + name :
@@ -203,7 +287,9 @@ class DataRepositoryBuilder {
                     " extends " + rootBuilder.basePackage + ".AbstractModuleRepository<" +
                             bean.interfaceType + "," + bean.inversionalKey + ">" +
                             " implements " + repositoryInterface + (bean.isDictionary() ?
-                            ", org.docero.data.utils.DDataDictionary<" +
+                            (bean.modifiedProperty() != null ?
+                                    ", org.docero.data.utils.DDataDeltaDictionary<" :
+                                    ", org.docero.data.utils.DDataDictionary<") +
                                     bean.interfaceType + "," + bean.inversionalKey + ">" :
                             ""
                     ) + " {"
@@ -226,7 +312,8 @@ class DataRepositoryBuilder {
                 cf.println("return " + bean.interfaceType + ".class;");
                 cf.endBlock("}");
                 cf.println("");
-                if (spring) cf.println("@org.springframework.cache.annotation.CachePut(cacheNames=\"" +
+                if (spring && bean.dictionary == DictionaryType.SMALL)
+                    cf.println("@org.springframework.cache.annotation.CachePut(cacheNames=\"" +
                             bean.cacheMap + "\", key = \"#bean.dDataBeanKey_\")");
                 cf.startBlock("public <T extends " + forInterfaceName + "> T put_(T bean) {");
                         //TODO without Spring
@@ -286,9 +373,16 @@ class DataRepositoryBuilder {
                 cf.endBlock("}");
             }
 
+            if (bean.modifiedProperty() != null) buildMethodsOfDelta(bean, cf);
+
             if (!bean.isDictionary()) {
                 buildDocToSaveMethod(cf);
                 buildMethodSave(bean, cf);
+                if (bean.versionalType == null) buildMethodPreload(bean, cf);
+                if (hasUpsert()) buildMethodUpsert(bean, cf);
+                if (isTracked()) buildMethodUpdateChanged(bean, cf);
+                for (DataBeanPropertyBuilder property : bean.properties.values())
+                    if (hasOrphansDelete(property)) buildMethodDeleteOrphans(bean, property, cf);
             } else {
                 cf.startBlock("public " + bean.inversionalKey + " save(");
                 cf.println(bean.interfaceType + " bean,");
@@ -458,11 +552,33 @@ class DataRepositoryBuilder {
             DataBeanPropertyBuilder dataBeanPropertyBuilder =
                     bean.properties.values().stream().filter(s -> s.isId && !s.isVersionFrom).findAny().get();
             cf.println(bean.interfaceType + " beanFromDB = get(bean.get" + getCapitalizeName(dataBeanPropertyBuilder.name) + "());\n");
-        } else
-            cf.println(bean.interfaceType + " beanFromDB = get(getKey(bean));\n");
+        } else {
+            if (isTracked()) {
+                cf.println("java.util.Set<String> changed_ = bean instanceof " + rootBuilder.basePackage +
+                        ".AbstractBean ? ((" + rootBuilder.basePackage + ".AbstractBean) bean).changed_() : null;");
+                String keyChanged = bean.properties.values().stream()
+                        .filter(p -> p.isId)
+                        .map(p -> "changed_.contains(\"" + p.name + "\")")
+                        .collect(Collectors.joining(" || "));
+                // изменение ключа - это другая запись, сохраняем как раньше
+                if (!keyChanged.isEmpty())
+                    cf.println("if (changed_ != null && (" + keyChanged + ")) changed_ = null;");
+            }
+            cf.println(bean.interfaceType + " beanFromDB = " + (hasUpsert() ? "updateOptions.isUpsert() ? null :\n" : "") +
+                    (isTracked() ? "changed_ != null ? (" + bean.interfaceType + ") ((" + rootBuilder.basePackage +
+                            ".AbstractBean) bean).loadedCopy_() :\n" : "") +
+                    "savedBeans instanceof org.docero.data.utils.SavedBeans ?\n" +
+                    "   ((org.docero.data.utils.SavedBeans) savedBeans).preloaded(this, getKey(bean), k -> get(k)) :\n" +
+                    "   get(getKey(bean));\n");
+        }
 
 
         cf.println(bean.inversionalKey + " returnedKey = null;");
+        if (hasUpsert()) {
+            cf.println("if (updateOptions.isUpsert()) {");
+            changeFieldOfBeanForInsert(bean, cf, beanImplementation[0], "upsert_");
+            cf.println("} else");
+        }
         cf.println("        if ( beanFromDB != null){");
         if (beanImplementation.length > 1) {
             for (String beanImpl : beanImplementation) {
@@ -473,6 +589,15 @@ class DataRepositoryBuilder {
         } else
             changeFieldOfBeanForUpdate(bean, cf, beanImplementation[0]);
 
+        if (isTracked()) {
+            cf.println("if (changed_ != null) {");
+            cf.println("changed_ = ((" + rootBuilder.basePackage + ".AbstractBean) bean).changed_();");
+            cf.println("if (!changed_.isEmpty() && updateChanged_(bean, changed_) == 0) {");
+            // строка удалена после загрузки бина, записываем бин заново
+            changeFieldOfBeanForInsert(bean, cf, beanImplementation[0]);
+            cf.println("}");
+            cf.println("} else");
+        }
         cf.println("if(((" + rootBuilder.basePackage + ".AbstractBean)beanFromDB).compareSimpleTypes(bean) != 0) \n" +
                 "update(bean);\n" +
                 "}else{");
@@ -486,8 +611,11 @@ class DataRepositoryBuilder {
         } else
             changeFieldOfBeanForInsert(bean, cf, beanImplementation[0]);
 
-        cf.println("            }\n" +
-                "     try {\n" +
+        cf.println("            }");
+        if (isTracked())
+            cf.println("if (bean instanceof " + rootBuilder.basePackage + ".AbstractBean) ((" +
+                    rootBuilder.basePackage + ".AbstractBean) bean).loaded_();");
+        cf.println("     try {\n" +
                 "            getSqlSession().getConnection().commit();\n" +
                 "        } catch (java.sql.SQLException e) {\n" +
                 "            e.printStackTrace();\n" +
@@ -495,13 +623,127 @@ class DataRepositoryBuilder {
                 "       return returnedKey;}");
     }
 
+    /**
+     * Load beans existing in database for set of saved beans, with one query per bean type
+     * on every level of one to many collections, used by save for decision insert or update.
+     */
+    private void buildMethodPreload(DataBeanBuilder bean, JavaClassWriter cf) throws IOException {
+        cf.println("");
+        cf.startBlock("public java.util.List<" + bean.interfaceType + "> getByKeys_(java.util.List<" +
+                bean.inversionalKey + "> keys) {");
+        cf.println("if (keys.isEmpty()) return new java.util.ArrayList<>();");
+        cf.println("return getSqlSession().selectList(\"" + mappingClassName + ".getByKeys_\", keys);");
+        cf.endBlock("}");
+        cf.println("");
+        cf.startBlock("public void preload(java.util.Collection<? extends " + bean.interfaceType + "> beans, " +
+                "org.docero.data.utils.SavedBeans savedBeans, org.docero.data.DData dData) {");
+        cf.println("java.util.List<" + bean.interfaceType + "> visited = new java.util.ArrayList<>();");
+        cf.println("java.util.List<" + bean.inversionalKey + "> keys = new java.util.ArrayList<>();");
+        cf.startBlock("for (" + bean.interfaceType + " b : beans) {");
+        cf.println("if (b == null || !savedBeans.visit(b)) continue;");
+        cf.println("visited.add(b);");
+        cf.println(bean.inversionalKey + " k = getKey(b);");
+        // ключ 0 у примитивного id - новая запись, её не ищем
+        cf.println("if (k != null && !(k instanceof Number && ((Number) k).longValue() == 0) &&");
+        cf.println("        !savedBeans.isPreloaded(this, k)) keys.add(k);");
+        cf.endBlock("}");
+        cf.startBlock("for (int from = 0; from < keys.size(); from += 1000) {");
+        cf.println("java.util.List<" + bean.inversionalKey + "> part = keys.subList(from, Math.min(from + 1000, keys.size()));");
+        cf.println("for (" + bean.inversionalKey + " k : part) savedBeans.store(this, k, null);");
+        cf.println("for (" + bean.interfaceType + " b : getByKeys_(part)) savedBeans.store(this, getKey(b), b);");
+        cf.endBlock("}");
+        for (DataBeanPropertyBuilder property : bean.properties.values()) {
+            Mapping mapping = rootBuilder.mappings.get(property.dataBean.interfaceType + "." + property.name);
+            DataBeanBuilder mappedBean = rootBuilder.beansByInterface.get(property.mappedType.toString());
+            DataRepositoryBuilder mappedRepository = rootBuilder.repositoriesByBean.get(property.mappedType.toString());
+            if (!property.isCollection() || mapping == null || mappedBean == null || mappedRepository == null ||
+                    mappedBean.versionalType != null || mappedBean.isDictionary())
+                continue;
+            String capitalizeName = getCapitalizeName(property.name);
+            cf.startBlock("{");
+            cf.println("java.util.List<" + property.mappedType + "> children = new java.util.ArrayList<>();");
+            cf.println("for (" + bean.interfaceType + " b : visited)");
+            cf.println("    if (b.get" + capitalizeName + "() != null) children.addAll(b.get" + capitalizeName + "());");
+            cf.println("if (!children.isEmpty()) dData.getRepository(" + mappedRepository.daoClassName +
+                    ".class).preload(children, savedBeans, dData);");
+            cf.endBlock("}");
+        }
+        cf.endBlock("}");
+    }
+
     private void changeFieldOfBeanForInsert(DataBeanBuilder bean, JavaClassWriter cf, String beanImpl) throws IOException {
-        cf.println(bean.interfaceType + " beanGetting = insert(bean);\n" +
+        changeFieldOfBeanForInsert(bean, cf, beanImpl, "insert");
+    }
+
+    private void changeFieldOfBeanForInsert(
+            DataBeanBuilder bean, JavaClassWriter cf, String beanImpl, String insertMethod
+    ) throws IOException {
+        cf.println(bean.interfaceType + " beanGetting = " + insertMethod + "(bean);\n" +
                 "returnedKey = getKey(beanGetting);");
         settingNewIdForBean(bean, cf, beanImpl);
         settingOnlyMappingBeans(bean, cf, beanImpl);
         settingMappedAndMappingBeans(bean, cf, beanImpl);
-        cf.println("update(bean);");
+        // upsert of bean without mapped beans is written by one statement
+        if (!"upsert_".equals(insertMethod) || hasMappedBeans(bean))
+            cf.println("update(bean);");
+    }
+
+    private boolean hasMappedBeans(DataBeanBuilder bean) {
+        return bean.properties.values().stream().anyMatch(p ->
+                rootBuilder.mappings.get(bean.interfaceType + "." + p.name) != null ||
+                        rootBuilder.mappings.get(p.mappedType.toString() + "." + bean.name) != null);
+    }
+
+    private void buildMethodUpsert(DataBeanBuilder bean, JavaClassWriter cf) throws IOException {
+        cf.println("");
+        cf.startBlock("public " + bean.interfaceType + " upsert_(" + bean.interfaceType + " bean) {");
+        cf.println("getSqlSession().insert(\"" + mappingClassName + ".upsert_\", bean);");
+        cf.println("return bean;");
+        cf.endBlock("}");
+    }
+
+    private void buildMethodUpdateChanged(DataBeanBuilder bean, JavaClassWriter cf) throws IOException {
+        cf.println("");
+        cf.startBlock("public int updateChanged_(" + bean.interfaceType + " bean, java.util.Set<String> changed) {");
+        cf.println("java.util.Map<String, Object> p = new java.util.HashMap<>();");
+        cf.println("p.put(\"bean\", bean);");
+        cf.println("p.put(\"changed\", changed);");
+        cf.println("return getSqlSession().update(\"" + mappingClassName + ".updateChanged_\", p);");
+        cf.endBlock("}");
+    }
+
+    private void buildMethodsOfDelta(DataBeanBuilder bean, JavaClassWriter cf) throws IOException {
+        DataBeanPropertyBuilder modified = bean.modifiedProperty();
+        cf.println("");
+        cf.startBlock("public Comparable modified_(" + bean.interfaceType + " bean) {");
+        cf.println("return bean.get" + getCapitalizeName(modified.name) + "();");
+        cf.endBlock("}");
+        cf.println("");
+        cf.startBlock("public java.util.List<" + bean.interfaceType + "> listChanged_(Object since) {");
+        cf.println("return getSqlSession().selectList(\"" + mappingClassName +
+                ".dictionaryChanged_\", java.util.Collections.singletonMap(\"since\", since));");
+        cf.endBlock("}");
+        cf.println("");
+        cf.startBlock("public java.util.List<" + bean.inversionalKey + "> keys_() {");
+        cf.println("return getSqlSession().selectList(\"" + mappingClassName + ".dictionaryKeys_\");");
+        cf.endBlock("}");
+    }
+
+    private void buildMethodDeleteOrphans(
+            DataBeanBuilder bean, DataBeanPropertyBuilder property, JavaClassWriter cf
+    ) throws IOException {
+        String key = rootBuilder.beansByInterface.get(property.mappedType.toString()).inversionalKey;
+        cf.println("");
+        cf.startBlock("public void deleteOrphans_" + getCapitalizeName(property.name) + "(" +
+                bean.interfaceType + " bean, java.util.List<" + key + "> keys) {");
+        cf.startBlock("for (int from = 0; from < keys.size(); from += 1000) {");
+        cf.println("java.util.Map<String, Object> p = new java.util.HashMap<>();");
+        cf.println("p.put(\"bean\", bean);");
+        cf.println("p.put(\"keys\", keys.subList(from, Math.min(from + 1000, keys.size())));");
+        cf.println("getSqlSession().delete(\"" + mappingClassName + ".deleteOrphans_" +
+                getCapitalizeName(property.name) + "\", p);");
+        cf.endBlock("}");
+        cf.endBlock("}");
     }
 
     private void settingOnlyMappingBeans(DataBeanBuilder bean, JavaClassWriter cf, String beanImpl) throws IOException {
@@ -714,6 +956,29 @@ class DataRepositoryBuilder {
                                 "       ().stream().map(s -> dao.getKey(s)).collect(java.util.stream.Collectors.toList());\n");
                     }
                 }
+                if (preloadsChildren(property)) {
+                    // удаление одним запросом, если удаление записи простое, иначе через репозиторий,
+                    // чтобы удалялись и вложенные записи; записи из базы уже прочитаны - используем их при сохранении
+                    cf.println(
+                            "if(!keysForDeleted.isEmpty()){\n" +
+                                    "   keysForDeleted.removeAll(keysForSaved);\n" +
+                                    (hasOrphansDelete(property) ?
+                                            "   if(!keysForDeleted.isEmpty()) deleteOrphans_" + capitalizeName +
+                                                    "(bean, keysForDeleted);}\n" :
+                                            "   for (" + inversionalKey + " forDelete: keysForDeleted)\n" +
+                                                    "       dao.delete(forDelete);}\n") +
+                                    "if(!keysForSaved.isEmpty()){\n" +
+                                    "   if(savedBeans instanceof org.docero.data.utils.SavedBeans){\n" +
+                                    "       org.docero.data.utils.SavedBeans sb = (org.docero.data.utils.SavedBeans) savedBeans;\n" +
+                                    "       for(" + property.mappedType + " s : beanFromDB.get" + capitalizeName + "()){\n" +
+                                    "           " + inversionalKey + " k = dao.getKey(s);\n" +
+                                    "           if(!sb.isPreloaded(dao, k)) sb.store(dao, k, s);}\n" +
+                                    "       dao.preload(bean.get" + capitalizeName + "(), sb, dData);}\n" +
+                                    "   for(" + property.mappedType + " b : bean.get" + capitalizeName + "()){\n" +
+                                    "       dao.save(b, updateOptions,dData,savedBeans);}" +
+                                    "}\n}");
+                    continue;
+                }
                 cf.println(
                         "if(!keysForDeleted.isEmpty()){\n" +
                                 "   keysForDeleted.removeAll(keysForSaved);\n" +
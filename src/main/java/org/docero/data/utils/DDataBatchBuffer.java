@@ -0,0 +1,134 @@
+package org.docero.data.utils;
+
+import org.apache.ibatis.executor.BatchResult;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Buffer of operations of batch repository, one per thread.
+ * <p>Operations are sent to batch executor grouped by statement, so every statement
+ * makes one JDBC batch. Groups are sent by order given to operation (beans referenced by
+ * other beans first), operations of one statement keep order of calls.</p>
+ * <p>Buffer is sent automatically when count of operations or estimated size of beans
+ * reaches limits, results of such sends are kept until {@link #flush()}.</p>
+ * <p>Buffer bound to transaction is sent before commit and cleared after end of
+ * transaction, so operations are not lost on commit and not left for next transaction
+ * after rollback.</p>
+ */
+public class DDataBatchBuffer {
+    public static final int MAX_OPERATIONS = 1000;
+    public static final long MAX_BYTES = 8L << 20;
+    private static final int OPERATION_BYTES = 32;
+
+    private final TreeMap<Integer, Map<String, List<Runnable>>> operations = new TreeMap<>();
+    private final Map<String, BatchResult> results = new LinkedHashMap<>();
+    private final Supplier<List<BatchResult>> executor;
+    private int maxOperations = MAX_OPERATIONS;
+    private long maxBytes = MAX_BYTES;
+    private int count;
+    private long bytes;
+    private boolean bound;
+
+    /**
+     * @param executor flush of statements of batch executor
+     */
+    public DDataBatchBuffer(Supplier<List<BatchResult>> executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param maxOperations count of operations sent at once, 0 or less is no limit
+     * @param maxBytes      estimated size of beans sent at once, 0 or less is no limit
+     */
+    public void setLimits(int maxOperations, long maxBytes) {
+        this.maxOperations = maxOperations;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add operation to buffer.
+     *
+     * @param order     order of group of operations
+     * @param statement statement executed by operation
+     * @param size      estimated size of bean in bytes
+     * @param operation call of statement
+     */
+    public void add(int order, String statement, long size, Runnable operation) {
+        operations.computeIfAbsent(order, k -> new LinkedHashMap<>())
+                .computeIfAbsent(statement, k -> new ArrayList<>())
+                .add(operation);
+        count++;
+        bytes += size + OPERATION_BYTES;
+        if ((maxOperations > 0 && count >= maxOperations) || (maxBytes > 0 && bytes >= maxBytes))
+            send();
+    }
+
+    /**
+     * Send buffered operations to database, before operations which can't wait in buffer.
+     */
+    public void send() {
+        if (count == 0) return;
+        try {
+            for (Map<String, List<Runnable>> group : operations.values())
+                for (List<Runnable> statement : group.values())
+                    for (Runnable operation : statement)
+                        operation.run();
+        } finally {
+            operations.clear();
+            count = 0;
+            bytes = 0;
+        }
+        merge(executor.get());
+    }
+
+    /**
+     * Send buffered operations and return results of all sends after previous flush.
+     *
+     * @return one result for every statement
+     */
+    public List<BatchResult> flush() {
+        send();
+        List<BatchResult> r = new ArrayList<>(results.values());
+        results.clear();
+        return r;
+    }
+
+    /**
+     * Mark buffer as bound to current transaction.
+     *
+     * @return false if buffer is bound already
+     */
+    public boolean bind() {
+        if (bound) return false;
+        bound = true;
+        return true;
+    }
+
+    /**
+     * Drop buffered operations and results, after end of transaction.
+     */
+    public void clear() {
+        operations.clear();
+        results.clear();
+        count = 0;
+        bytes = 0;
+        bound = false;
+    }
+
+    private void merge(List<BatchResult> list) {
+        for (BatchResult r : list) {
+            String key = r.getMappedStatement().getId() + '\n' + r.getSql();
+            BatchResult m = results.get(key);
+            if (m == null) results.put(key, r);
+            else {
+                r.getParameterObjects().forEach(m::addParameterObject);
+                int[] a = m.getUpdateCounts() == null ? new int[0] : m.getUpdateCounts();
+                int[] b = r.getUpdateCounts() == null ? new int[0] : r.getUpdateCounts();
+                int[] c = Arrays.copyOf(a, a.length + b.length);
+                System.arraycopy(b, 0, c, a.length, b.length);
+                m.setUpdateCounts(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.docero.data.utils;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Dictionary refreshed by rows changed since previous load, implemented by repositories of
+ * SMALL dictionaries with property marked as {@link org.docero.data.DDataProperty#modified()}.
+ *
+ * @param <T> type of bean
+ * @param <C> type of bean key
+ */
+public interface DDataDeltaDictionary<T extends Serializable, C extends Serializable> extends DDataDictionary<T, C> {
+    /**
+     * @param bean bean of dictionary
+     * @return time or version of last modification of bean
+     */
+    Comparable modified_(T bean);
+
+    /**
+     * @param since time or version of last modification of previously loaded beans
+     * @return beans modified at or after specified time (version)
+     */
+    List<T> listChanged_(Object since);
+
+    /**
+     * @return keys of all rows in dictionary table, in order of list of dictionary
+     */
+    List<C> keys_();
+}
@@ -11,4 +11,10 @@ public interface DDataDictionary<T extends Serializable, C extends Serializable>
     Class<T> getItemInterface();
     <B extends T> B put_(B bean);
     Integer version_(Integer i);
+
+    /**
+     * @param bean bean of dictionary
+     * @return key of bean
+     */
+    C getKey(T bean);
 }
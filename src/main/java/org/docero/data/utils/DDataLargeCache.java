@@ -0,0 +1,475 @@
+package org.docero.data.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of beans of large dictionary.
+ * <p>Eviction follows W-TinyLFU: new entries come into small LRU window (1% of cache),
+ * entry leaving window goes to main space only if it was used more often than LRU entry of
+ * main space, which is evicted then. Main space is segmented LRU, entries used twice move
+ * from probation to protected segment (80% of main space). Frequencies of keys are
+ * counted by count-min sketch, halved periodically so old popularity fades.</p>
+ * <p>Reads don't take lock of cache: bean is read from concurrent map, and read is recorded
+ * in one of striped buffers, which are applied to eviction policy under lock by writes
+ * or when buffer is half full. Reads are dropped from full buffer, so under heavy load
+ * policy sees a sample of them.</p>
+ * <p>Values are loaded on miss by loader of {@link #get(Object, Function)}, nulls are not cached.</p>
+ *
+ * @param <K> type of key
+ * @param <V> type of bean
+ */
+public class DDataLargeCache<K, V> {
+    private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+    private static final int READ_BUFFER_SIZE = 32;
+
+    private final long maximumWeight;
+    private final long maxWindow;
+    private final long maxProtected;
+    private final ToLongFunction<? super V> weigher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final LinkedHashMap<K, Node<K, V>>[] segments = new LinkedHashMap[]{
+            new LinkedHashMap<>(16, 0.75f, true),
+            new LinkedHashMap<>(16, 0.75f, true),
+            new LinkedHashMap<>(16, 0.75f, true)
+    };
+    private final long[] weights = new long[3];
+    private final FrequencySketch sketch;
+    private final ReadBuffer<K>[] reads;
+    /**
+     * token of latest load started for key, removed by put or invalidate of key
+     */
+    private final HashMap<K, Long> loading = new HashMap<>();
+    private long loadTokens;
+    private volatile Object version;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long loads;
+    private long evictions;
+
+    /**
+     * @param maximumSize maximal count of beans in cache
+     */
+    public DDataLargeCache(long maximumSize) {
+        this(maximumSize, v -> 1);
+    }
+
+    /**
+     * @param maximumWeight maximal summary weight of beans in cache
+     * @param weigher       weight of bean, for example estimated size in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public DDataLargeCache(long maximumWeight, ToLongFunction<? super V> weigher) {
+        this.maximumWeight = Math.max(maximumWeight, 1);
+        this.weigher = weigher;
+        this.maxWindow = Math.max(this.maximumWeight / 100, 1);
+        this.maxProtected = (this.maximumWeight - maxWindow) * 8 / 10;
+        this.sketch = new FrequencySketch((int) Math.min(this.maximumWeight, 1 << 20));
+        int stripes = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 32) * 2 - 1) << 1;
+        reads = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) reads[i] = new ReadBuffer<>();
+    }
+
+    /**
+     * Get bean from cache or load it. Loaded bean is not cached if key was put or invalidated
+     * while loader worked, so bean loaded before change doesn't replace newer state.
+     *
+     * @param key    key of bean
+     * @param loader loads bean by key on miss, called outside of cache lock
+     * @return bean or null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V v = getIfPresent(key);
+        if (v != null) return v;
+        long token;
+        lock.lock();
+        try {
+            loads++;
+            token = ++loadTokens;
+            loading.put(key, token);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            v = loader.apply(key);
+        } finally {
+            lock.lock();
+            try {
+                Long current = loading.get(key);
+                if (current != null && current == token) {
+                    loading.remove(key);
+                    drainReads();
+                    if (v != null) store(key, v);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return v;
+    }
+
+    /**
+     * @param key key of bean
+     * @return bean from cache or null
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) misses.increment();
+        else hits.increment();
+        ReadBuffer<K> buffer = reads[(int) Thread.currentThread().getId() & (reads.length - 1)];
+        if (buffer.size.get() < READ_BUFFER_SIZE) {
+            buffer.keys.offer(key);
+            if (buffer.size.incrementAndGet() >= READ_BUFFER_SIZE / 2 && lock.tryLock())
+                try {
+                    drainReads();
+                } finally {
+                    lock.unlock();
+                }
+        }
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Store bean in cache, replaces cached bean with the same key.
+     *
+     * @param key   key of bean
+     * @param value bean
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            invalidate(key);
+            return;
+        }
+        lock.lock();
+        try {
+            loading.remove(key);
+            drainReads();
+            if (!data.containsKey(key)) sketch.increment(key);
+            store(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            weights[node.segment] += weight - node.weight;
+            node.weight = weight;
+            segments[node.segment].get(key);
+        } else {
+            node = new Node<>(key, value, weight);
+            data.put(key, node);
+            segments[WINDOW].put(key, node);
+            weights[WINDOW] += weight;
+        }
+        evict();
+    }
+
+    /**
+     * @param key key of bean removed from cache
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            drainReads();
+            loading.remove(key);
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                segments[node.segment].remove(key);
+                weights[node.segment] -= node.weight;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all beans from cache, statistics are kept.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            drainReads();
+            loading.clear();
+            data.clear();
+            for (int i = 0; i < segments.length; i++) {
+                segments[i].clear();
+                weights[i] = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop all beans if they were cached for other version of dictionary, version may be
+     * changed by other node of cluster.
+     *
+     * @param version current version of dictionary
+     * @return true if beans were dropped
+     */
+    public boolean validate(Object version) {
+        if (Objects.equals(this.version, version)) return false;
+        lock.lock();
+        try {
+            if (Objects.equals(this.version, version)) return false;
+            invalidateAll();
+            this.version = version;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keep beans after change of version of dictionary made by owner of cache, which has
+     * updated cache itself. Beans are dropped if they were not cached for previous version.
+     *
+     * @param from version of dictionary before change
+     * @param to   version of dictionary after change
+     */
+    public void advance(Object from, Object to) {
+        lock.lock();
+        try {
+            if (!Objects.equals(version, from)) invalidateAll();
+            version = to;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of beans in cache
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return statistics of cache since its creation
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), loads, evictions, data.size(),
+                    weights[WINDOW] + weights[PROBATION] + weights[PROTECTED]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply recorded reads to policy, under lock.
+     */
+    private void drainReads() {
+        for (ReadBuffer<K> buffer : reads)
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                K key = buffer.keys.poll();
+                if (key == null) break;
+                buffer.size.decrementAndGet();
+                sketch.increment(key);
+                Node<K, V> node = data.get(key);
+                if (node == null) continue;
+                if (node.segment == PROBATION) {
+                    move(node, PROTECTED);
+                    while (weights[PROTECTED] > maxProtected)
+                        move(segments[PROTECTED].values().iterator().next(), PROBATION);
+                } else
+                    segments[node.segment].get(key);
+            }
+    }
+
+    private void evict() {
+        long maxMain = maximumWeight - maxWindow;
+        while (weights[WINDOW] > maxWindow) {
+            Node<K, V> candidate = segments[WINDOW].values().iterator().next();
+            segments[WINDOW].remove(candidate.key);
+            weights[WINDOW] -= candidate.weight;
+            if (candidate.weight > maxMain) {
+                remove(candidate);
+                continue;
+            }
+            int f = sketch.frequency(candidate.key);
+            boolean admitted = true;
+            while (weights[PROBATION] + weights[PROTECTED] + candidate.weight > maxMain) {
+                Node<K, V> victim = victim();
+                if (sketch.frequency(victim.key) >= f) {
+                    admitted = false;
+                    break;
+                }
+                segments[victim.segment].remove(victim.key);
+                weights[victim.segment] -= victim.weight;
+                remove(victim);
+            }
+            if (admitted) {
+                candidate.segment = PROBATION;
+                segments[PROBATION].put(candidate.key, candidate);
+                weights[PROBATION] += candidate.weight;
+            } else remove(candidate);
+        }
+        while (weights[PROBATION] + weights[PROTECTED] > maxMain) {
+            Node<K, V> victim = victim();
+            segments[victim.segment].remove(victim.key);
+            weights[victim.segment] -= victim.weight;
+            remove(victim);
+        }
+    }
+
+    private Node<K, V> victim() {
+        Iterator<Node<K, V>> i = segments[PROBATION].values().iterator();
+        return i.hasNext() ? i.next() : segments[PROTECTED].values().iterator().next();
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key);
+        evictions++;
+    }
+
+    private void move(Node<K, V> node, int segment) {
+        segments[node.segment].remove(node.key);
+        weights[node.segment] -= node.weight;
+        node.segment = segment;
+        segments[segment].put(node.key, node);
+        weights[segment] += node.weight;
+    }
+
+    private static final class ReadBuffer<K> {
+        final ConcurrentLinkedQueue<K> keys = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        long weight;
+        int segment = WINDOW;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 rows with counters up to 15, all counters are halved
+     * after 10 * width increments.
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb7e15162, 0xc2b2ae35, 0x85ebca6b};
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expected) {
+            int width = Integer.highestOneBit(Math.max(expected, 16) - 1) << 1;
+            table = new byte[SEEDS.length][width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            for (int i = 0; i < SEEDS.length; i++) {
+                int j = index(h, i);
+                if (table[i][j] < 15) table[i][j]++;
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] row : table)
+                    for (int j = 0; j < row.length; j++) row[j] = (byte) (row[j] >> 1);
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int f = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++)
+                f = Math.min(f, table[i][index(h, i)]);
+            return f;
+        }
+
+        private int index(int h, int i) {
+            int x = h * SEEDS[i];
+            return (x ^ (x >>> 16)) & mask;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 17;
+            h *= 0xed5ad4bb;
+            return h ^ (h >>> 11);
+        }
+    }
+
+    /**
+     * Statistics of cache.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadCount;
+        private final long evictionCount;
+        private final long size;
+        private final long weight;
+
+        Stats(long hitCount, long missCount, long loadCount, long evictionCount, long size, long weight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadCount = loadCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hitCount + ", misses=" + missCount + ", loads=" + loadCount +
+                    ", evictions=" + evictionCount + ", size=" + size + ", weight=" + weight;
+        }
+    }
+}
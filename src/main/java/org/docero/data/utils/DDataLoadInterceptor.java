@@ -0,0 +1,35 @@
+package org.docero.data.utils;
+
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.*;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * MyBatis plugin marking beans returned by selects as loaded, so the 'save' method
+ * of * _Dao_ class finds changed columns without reading of bean from database.
+ * <p>Beans loaded by join in result of other bean are not marked, they are saved as before.</p>
+ */
+@Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}))
+public class DDataLoadInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (result instanceof List)
+            for (Object bean : (List<?>) result)
+                if (bean instanceof DDataLoadedBean)
+                    ((DDataLoadedBean) bean).loaded_();
+        return result;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+}
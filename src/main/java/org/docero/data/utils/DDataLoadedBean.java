@@ -0,0 +1,12 @@
+package org.docero.data.utils;
+
+/**
+ * Bean taking state of its columns when it was loaded from database,
+ * it is called by {@link DDataLoadInterceptor} for every bean returned by select.
+ */
+public interface DDataLoadedBean {
+    /**
+     * Store current values of columns as loaded from database.
+     */
+    void loaded_();
+}
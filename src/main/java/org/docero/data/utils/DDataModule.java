@@ -35,4 +35,16 @@ public interface DDataModule {
             UpdateOptions updateOptions,
             DData dData
     );
+
+    default <T extends java.io.Serializable> java.util.List<T> saveAll(
+            java.util.Collection<T> beans,
+            Class beanInterface,
+            SqlSessionFactory sqlSessionFactory,
+            UpdateOptions updateOptions,
+            DData dData
+    ) {
+        java.util.List<T> saved = new java.util.ArrayList<>(beans.size());
+        for (T t : beans) saved.add(save(t, beanInterface, sqlSessionFactory, updateOptions, dData));
+        return saved;
+    }
 }
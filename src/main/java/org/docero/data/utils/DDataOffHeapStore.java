@@ -0,0 +1,405 @@
+package org.docero.data.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable set of serialized beans kept in direct buffers, out of java heap.
+ * <p>Beans are found by key with open-addressing index of primitive arrays, and decoded
+ * on every access. Beans found by key are kept decoded in small hot set.</p>
+ * <p>Entry of buffer is length of key, key bytes, length of bean, bean bytes. Keys of
+ * integer types are stored as long, strings as UTF-8, other keys are serialized. Bean
+ * without key is kept in order of beans with empty key, and is not indexed.</p>
+ * <p>Beans are serialized without stream header and with class descriptors replaced by
+ * numbers of them in table shared by store and stores merged from it, so bean takes only
+ * values of its fields, and decoding doesn't parse descriptors.</p>
+ * <p>Store made by {@link #merge(List, Function, List)} shares buffers with source store
+ * and writes only changed beans, buffers are copied when more than half of them is taken
+ * by replaced or removed beans.</p>
+ *
+ * @param <K> type of key
+ * @param <V> type of bean
+ */
+public class DDataOffHeapStore<K, V> {
+    private static final int MIN_CHUNK_SIZE = 64 << 10;
+    private static final int CHUNK_SIZE = 16 << 20;
+
+    private final ByteBuffer[] chunks;
+    private final long[] order;
+    private final int[] hashes;
+    private final long[] addresses;
+    private final int mask;
+    private final long bytes;
+    private final ClassLoader classLoader;
+    private final Codec codec;
+    private final int hotSize;
+    private final DDataLargeCache<K, V> hot;
+
+    private DDataOffHeapStore(Builder<K, V> b) {
+        this.chunks = b.chunks.toArray(new ByteBuffer[0]);
+        this.order = Arrays.copyOf(b.order, b.size);
+        this.classLoader = b.classLoader;
+        this.codec = b.codec;
+        this.hotSize = b.hotSize;
+        this.hot = b.hotSize > 0 ? new DDataLargeCache<>(b.hotSize) : null;
+        this.bytes = b.bytes;
+        int capacity = Integer.highestOneBit(Math.max(b.size * 2, 16) - 1) << 1;
+        this.hashes = new int[capacity];
+        this.addresses = new long[capacity];
+        this.mask = capacity - 1;
+        for (long address : order) {
+            ByteBuffer chunk = chunks[(int) (address >>> 32)];
+            if (chunk.getInt((int) address) == 0) continue;
+            int h = hash(chunk, (int) address);
+            int i = h & mask;
+            while (addresses[i] != 0) i = (i + 1) & mask;
+            hashes[i] = h;
+            addresses[i] = address + 1;
+        }
+    }
+
+    /**
+     * @param classLoader loader of bean classes
+     * @param hotSize     count of decoded beans kept on heap, 0 for no hot set
+     * @param <K>         type of key
+     * @param <V>         type of bean
+     * @return builder of new store
+     */
+    public static <K, V> Builder<K, V> builder(ClassLoader classLoader, int hotSize) {
+        return new Builder<>(classLoader, new Codec(), hotSize);
+    }
+
+    /**
+     * @param key key of bean
+     * @return decoded bean or null
+     */
+    public V get(K key) {
+        if (key == null) return null;
+        if (hot != null) return hot.get(key, this::find);
+        return find(key);
+    }
+
+    /**
+     * @param index position of bean in order of adding
+     * @return decoded bean
+     */
+    public V get(int index) {
+        return value(order[index]);
+    }
+
+    /**
+     * @param key key of bean
+     * @return true if store contains bean with key
+     */
+    public boolean containsKey(K key) {
+        return key != null && address(encode(key)) >= 0;
+    }
+
+    /**
+     * @return count of beans
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * @return size of serialized beans and keys out of heap, buffers shared after merges
+     * may take up to twice more
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return unmodifiable list decoding beans on access
+     */
+    public List<V> asList() {
+        return new Values();
+    }
+
+    /**
+     * New store with beans in order of keys: changed beans are encoded, other beans are
+     * taken without decoding, beans which keys are not in list are dropped. Changed beans
+     * which keys are not in list are added to end.
+     *
+     * @param changed changed beans
+     * @param keyOf   key of bean
+     * @param keys    keys of all beans
+     * @return new store
+     */
+    public DDataOffHeapStore<K, V> merge(List<V> changed, Function<V, K> keyOf, List<K> keys) {
+        Map<ByteBuffer, byte[]> replaced = new LinkedHashMap<>();
+        for (V bean : changed) {
+            K key = keyOf.apply(bean);
+            if (key != null) replaced.put(ByteBuffer.wrap(encode(key)), codec.serialize(bean));
+        }
+        long written = 0;
+        for (Map.Entry<ByteBuffer, byte[]> e : replaced.entrySet())
+            written += 8 + e.getKey().capacity() + e.getValue().length;
+
+        List<byte[]> encoded = new ArrayList<>(keys.size());
+        long[] kept = new long[keys.size()];
+        long live = written;
+        for (int i = 0; i < kept.length; i++) {
+            byte[] key = encode(keys.get(i));
+            encoded.add(key);
+            kept[i] = replaced.containsKey(ByteBuffer.wrap(key)) ? -1 : address(key);
+            if (kept[i] >= 0) live += length(kept[i]);
+        }
+        long allocated = written;
+        for (ByteBuffer chunk : chunks) allocated += chunk.capacity();
+        // буферы копируются, только если больше половины в них занято старыми записями
+        boolean compact = live * 2 < allocated;
+
+        Builder<K, V> b = new Builder<>(classLoader, codec, hotSize);
+        if (!compact) b.chunks.addAll(Arrays.asList(chunks));
+        b.reserve(compact ? live : written);
+        for (int i = 0; i < kept.length; i++) {
+            byte[] key = encoded.get(i);
+            byte[] value = replaced.remove(ByteBuffer.wrap(key));
+            if (value != null) b.addRaw(key, value);
+            else if (kept[i] >= 0) {
+                if (compact) b.addRaw(key, valueBytes(kept[i]));
+                else b.addAddress(kept[i], length(kept[i]));
+            }
+        }
+        for (Map.Entry<ByteBuffer, byte[]> e : replaced.entrySet())
+            b.addRaw(e.getKey().array(), e.getValue());
+        return b.build();
+    }
+
+    private V find(K key) {
+        long address = address(encode(key));
+        return address < 0 ? null : value(address);
+    }
+
+    private long address(byte[] key) {
+        int h = hash(key);
+        for (int i = h & mask; addresses[i] != 0; i = (i + 1) & mask)
+            if (hashes[i] == h && keyEquals(addresses[i] - 1, key)) return addresses[i] - 1;
+        return -1;
+    }
+
+    /**
+     * Compare key of entry with key in buffer, without copy of it.
+     */
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int pos = (int) address;
+        if (chunk.getInt(pos) != key.length) return false;
+        pos += 4;
+        for (int i = 0; i < key.length; i++)
+            if (chunk.get(pos + i) != key[i]) return false;
+        return true;
+    }
+
+    private int length(long address) {
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int pos = (int) address;
+        int keyLength = chunk.getInt(pos);
+        return 8 + keyLength + chunk.getInt(pos + 4 + keyLength);
+    }
+
+    private byte[] valueBytes(long address) {
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int pos = (int) address;
+        pos += 4 + chunk.getInt(pos);
+        byte[] value = new byte[chunk.getInt(pos)];
+        read(chunk, pos + 4, value);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(long address) {
+        ByteBuffer chunk = chunks[(int) (address >>> 32)].duplicate();
+        int pos = (int) address;
+        pos += 4 + chunk.getInt(pos);
+        chunk.limit(pos + 4 + chunk.getInt(pos)).position(pos + 4);
+        return (V) codec.deserialize(chunk, classLoader);
+    }
+
+    private static void read(ByteBuffer chunk, int pos, byte[] to) {
+        ByteBuffer b = chunk.duplicate();
+        b.position(pos);
+        b.get(to);
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Hash of key of entry, the same as of key bytes.
+     */
+    private static int hash(ByteBuffer chunk, int pos) {
+        int h = 1;
+        for (int i = pos + 4, end = i + chunk.getInt(pos); i < end; i++) h = 31 * h + chunk.get(i);
+        return h ^ (h >>> 16);
+    }
+
+    static byte[] encode(Object key) {
+        if (key == null) return new byte[0];
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte)
+            return ByteBuffer.allocate(9).put((byte) 'L').putLong(((Number) key).longValue()).array();
+        if (key instanceof String) {
+            byte[] s = ((String) key).getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(s.length + 1).put((byte) 'S').put(s).array();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write('O');
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(key);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("key is not serializable: " + key, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Java serialization with class descriptors shared by beans of stores. Descriptors
+     * are taken from this JVM, beans are never read by other one.
+     */
+    private static final class Codec {
+        private final Map<ObjectStreamClass, Integer> ids = new HashMap<>();
+        private volatile ObjectStreamClass[] descriptors = new ObjectStreamClass[0];
+
+        private synchronized int id(ObjectStreamClass desc) {
+            Integer id = ids.get(desc);
+            if (id == null) {
+                id = descriptors.length;
+                ObjectStreamClass[] d = Arrays.copyOf(descriptors, id + 1);
+                d[id] = desc;
+                descriptors = d;
+                ids.put(desc, id);
+            }
+            return id;
+        }
+
+        byte[] serialize(Object bean) {
+            ByteArrayOutputStream value = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(value) {
+                @Override
+                protected void writeStreamHeader() {
+                }
+
+                @Override
+                protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+                    writeInt(id(desc));
+                }
+            }) {
+                out.writeObject(bean);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("bean is not serializable: " + bean, e);
+            }
+            return value.toByteArray();
+        }
+
+        Object deserialize(ByteBuffer value, ClassLoader classLoader) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(value)) {
+                @Override
+                protected void readStreamHeader() {
+                }
+
+                @Override
+                protected ObjectStreamClass readClassDescriptor() throws IOException {
+                    int id = readInt();
+                    ObjectStreamClass[] d = descriptors;
+                    if (id < 0 || id >= d.length) throw new InvalidClassException("unknown class descriptor " + id);
+                    return d[id];
+                }
+
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    Class<?> c = desc.forClass();
+                    return c != null ? c : Class.forName(desc.getName(), false, classLoader);
+                }
+            }) {
+                return in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException("can't decode bean of dictionary", e);
+            }
+        }
+    }
+
+    private final class Values extends AbstractList<V> implements RandomAccess {
+        @Override
+        public V get(int index) {
+            return DDataOffHeapStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+    }
+
+    /**
+     * Builder of store, beans are written to direct buffers while added.
+     *
+     * @param <K> type of key
+     * @param <V> type of bean
+     */
+    public static final class Builder<K, V> {
+        private final ClassLoader classLoader;
+        private final Codec codec;
+        private final int hotSize;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer current;
+        private long[] order = new long[16];
+        private int size;
+        private long bytes;
+
+        private Builder(ClassLoader classLoader, Codec codec, int hotSize) {
+            this.classLoader = classLoader;
+            this.codec = codec;
+            this.hotSize = hotSize;
+        }
+
+        /**
+         * @param key  key of bean, bean without key is not found by key
+         * @param bean serializable bean
+         * @return this builder
+         */
+        public Builder<K, V> add(K key, V bean) {
+            return addRaw(encode(key), codec.serialize(bean));
+        }
+
+        /**
+         * @return store of added beans
+         */
+        public DDataOffHeapStore<K, V> build() {
+            return new DDataOffHeapStore<>(this);
+        }
+
+        private void reserve(long length) {
+            if (length <= 0) return;
+            current = ByteBuffer.allocateDirect((int) Math.min(length, CHUNK_SIZE));
+            chunks.add(current);
+        }
+
+        private void addAddress(long address, int length) {
+            if (size == order.length) order = Arrays.copyOf(order, size * 2);
+            order[size++] = address;
+            bytes += length;
+        }
+
+        private Builder<K, V> addRaw(byte[] key, byte[] value) {
+            int length = 8 + key.length + value.length;
+            if (current == null || current.remaining() < length) {
+                // buffers grow from small ones, so small dictionaries don't take much memory
+                int capacity = current == null ? MIN_CHUNK_SIZE : Math.min(CHUNK_SIZE, current.capacity() * 2);
+                current = ByteBuffer.allocateDirect(Math.max(capacity, length));
+                chunks.add(current);
+            }
+            if (size == order.length) order = Arrays.copyOf(order, size * 2);
+            order[size++] = ((long) (chunks.size() - 1) << 32) | current.position();
+            current.putInt(key.length).put(key).putInt(value.length).put(value);
+            bytes += length;
+            return this;
+        }
+    }
+}
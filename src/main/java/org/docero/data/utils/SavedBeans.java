@@ -0,0 +1,64 @@
+package org.docero.data.utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Set of beans already saved by the 'save' method of the * _Dao_ class, with beans
+ * preloaded from database for set of beans saved at once.
+ */
+public class SavedBeans extends HashSet<Object> {
+    private final Map<Object, Map<Object, Object>> preloaded = new HashMap<>();
+    private final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+
+    /**
+     * @param repository repository of bean
+     * @param key        key of bean
+     * @return true if bean for key was searched in database
+     */
+    public boolean isPreloaded(Object repository, Object key) {
+        Map<Object, Object> beans = preloaded.get(repository);
+        return beans != null && beans.containsKey(key);
+    }
+
+    /**
+     * Store bean loaded from database, or null if bean with key is not exists.
+     *
+     * @param repository repository of bean
+     * @param key        key of bean
+     * @param bean       bean from database or null
+     */
+    public void store(Object repository, Object key, Object bean) {
+        preloaded.computeIfAbsent(repository, k -> new HashMap<>()).put(key, bean);
+    }
+
+    /**
+     * Get bean from database, preloaded or loaded by repository if it wasn't preloaded.
+     *
+     * @param repository repository of bean
+     * @param key        key of bean
+     * @param loader     method of repository loading bean by key
+     * @param <K>        type of key
+     * @param <T>        type of bean
+     * @return bean or null
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T> T preloaded(Object repository, K key, Function<K, T> loader) {
+        Map<Object, Object> beans = preloaded.get(repository);
+        if (beans != null && beans.containsKey(key)) return (T) beans.get(key);
+        return loader.apply(key);
+    }
+
+    /**
+     * Mark bean as processed by preload, for stop on cycles of beans graph.
+     *
+     * @param bean bean
+     * @return false if bean was already marked
+     */
+    public boolean visit(Object bean) {
+        return visited.put(bean, Boolean.TRUE) == null;
+    }
+}
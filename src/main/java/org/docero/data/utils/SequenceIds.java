@@ -0,0 +1,150 @@
+package org.docero.data.utils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocator of ids from database sequences, shared by all views in JVM.
+ * By default every id is fetched by own nextval(), ids may be fetched by blocks, one query per block:
+ * <ul>
+ * <li>if size of block is set by {@link #setBlockSize(int)}, as many values of nextval() as size
+ * of block (only for PostgreSQL, other databases fetch ids one by one);</li>
+ * <li>for sequences registered by {@link #setIncrement(DataSource, String, int)} by one nextval(),
+ * values from it up to value + increment - 1 are used (pooled ids).</li>
+ * </ul>
+ * Pools and increments are kept per data source, data source is referenced weakly and its
+ * pools are dropped with it. Ids not used before JVM stops are lost, sequence isn't rolled back.
+ */
+@SuppressWarnings({"SqlDialectInspection", "SqlNoDataSourceInspection"})
+public final class SequenceIds {
+    private static final Map<DataSource, Sequences> sources = new WeakHashMap<>();
+    private static volatile int blockSize = 1;
+
+    private SequenceIds() {
+    }
+
+    /**
+     * Set count of ids fetched by one query for sequences without registered increment.
+     * Default is 1, ids are fetched one by one. Ids of block not used before JVM stops are lost.
+     *
+     * @param size count of ids
+     */
+    public static void setBlockSize(int size) {
+        blockSize = Math.max(size, 1);
+    }
+
+    /**
+     * Register sequence created with INCREMENT BY greater than one. Every value returned by
+     * nextval() of such sequence reserves block of ids, so any other code inserting ids from it
+     * must use the same allocation, or it may produce duplicates.
+     *
+     * @param dataSource data source of database of sequence
+     * @param sequence   name of sequence
+     * @param increment  increment of sequence
+     */
+    public static void setIncrement(DataSource dataSource, String sequence, int increment) {
+        Sequences s = sequences(dataSource);
+        if (increment > 1) s.increments.put(sequence, increment);
+        else s.increments.remove(sequence);
+    }
+
+    /**
+     * Get next id from sequence.
+     *
+     * @param dataSource data source of connection, used to separate sequences of different databases
+     * @param connection connection used for fetch of block of ids
+     * @param sequence   name of sequence
+     * @return id
+     * @throws SQLException on JDBC exceptions
+     */
+    public static long next(DataSource dataSource, Connection connection, String sequence) throws SQLException {
+        Sequences s = sequences(dataSource);
+        return s.pools.computeIfAbsent(sequence, k -> new Pool(sequence, s))
+                .next(connection);
+    }
+
+    private static synchronized Sequences sequences(DataSource dataSource) {
+        return sources.computeIfAbsent(dataSource, k -> new Sequences());
+    }
+
+    /**
+     * Sequences of one data source, must not reference it
+     */
+    private static final class Sequences {
+        final Map<String, Pool> pools = new ConcurrentHashMap<>();
+        final Map<String, Integer> increments = new ConcurrentHashMap<>();
+        /**
+         * database supports select of block by generate_series(), checked on first fetch of block
+         */
+        volatile Boolean series;
+
+        boolean series(Connection connection) throws SQLException {
+            Boolean v = series;
+            if (v == null)
+                series = v = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            return v;
+        }
+    }
+
+    private static final class Pool {
+        private final String sequence;
+        private final Sequences sequences;
+        private long[] ids = new long[0];
+        private int next;
+
+        private Pool(String sequence, Sequences sequences) {
+            this.sequence = sequence;
+            this.sequences = sequences;
+        }
+
+        synchronized long next(Connection connection) throws SQLException {
+            if (next >= ids.length) {
+                ids = fetch(connection);
+                next = 0;
+            }
+            return ids[next++];
+        }
+
+        private long[] fetch(Connection connection) throws SQLException {
+            Integer increment = sequences.increments.get(sequence);
+            if (increment != null) {
+                long[] block = new long[increment];
+                long hi = nextval(connection);
+                for (int i = 0; i < increment; i++) block[i] = hi + i;
+                return block;
+            }
+            int size = blockSize;
+            if (size == 1 || !sequences.series(connection)) return new long[]{nextval(connection)};
+
+            long[] block = new long[size];
+            int n = 0;
+            try (PreparedStatement st = connection.prepareStatement(
+                    "SELECT nextval(?) FROM generate_series(1, ?)")) {
+                st.setString(1, sequence);
+                st.setInt(2, size);
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next() && n < size) block[n++] = rs.getLong(1);
+                }
+            }
+            if (n == 0) throw new SQLException("no values from sequence " + sequence);
+            return n == size ? block : Arrays.copyOf(block, n);
+        }
+
+        private long nextval(Connection connection) throws SQLException {
+            try (PreparedStatement st = connection.prepareStatement("SELECT nextval(?)")) {
+                st.setString(1, sequence);
+                try (ResultSet rs = st.executeQuery()) {
+                    if (rs.next()) return rs.getLong(1);
+                }
+            }
+            throw new SQLException("no values from sequence " + sequence);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 public class UpdateOptions {
     private boolean isIncludeJsonProps;
     private boolean isIncludeXmlProps;
+    private boolean isUpsert;
     private ArrayList<DDataAttribute> excluded = new ArrayList<>();
     private Map<Class, Consumer> beanHandlers = new HashMap<>();
 
@@ -47,6 +48,24 @@ public class UpdateOptions {
         isIncludeXmlProps = true;
         return this;
     }
+    /**
+     * saved beans are written by one insert-or-update statement, without reading of
+     * bean from database. Collections removed from bean are not deleted in this mode.
+     *
+     * @return current instance UpdateOptions
+     */
+    public UpdateOptions upsert() {
+        isUpsert = true;
+        return this;
+    }
+
+    /**
+     * @return true if beans are saved by insert-or-update statement
+     */
+    public boolean isUpsert() {
+        return isUpsert;
+    }
+
     /**
      * @param attribute excluded form saved
      * @return
@@ -9,16 +9,12 @@ import org.slf4j.LoggerFactory;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.sql.*;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.Temporal;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -31,153 +27,40 @@ abstract class AbstractDataView {
     private final AtomicInteger tablesCounter = new AtomicInteger(0);
     private final Map<String, CollectionJoin> selectsForCollections = new HashMap<>();
 
+    final Definition definition;
     private final TableEntity rootEntity;
-    private final HashMap<String, TableEntity> tableEntities = new HashMap<>();
+    private final Map<String, TableEntity> tableEntities;
     private final DDataDictionariesService dictionariesService;
     final Class<? extends DDataAttribute>[] roots;
-    final HashMap<String, TableCell> tableCells = new HashMap<>();
+    final Map<String, TableCell> tableCells;
 
     private String keyType;
     private HashSet<Integer> joinedInRootQuery;
     private HashSet<String> columnsInRoot;
+    private final List<SortColumn> sortInRoot = new ArrayList<>();
+    /**
+     * Write NULLS LAST (NULLS FIRST for descending) in ORDER BY, used where order of
+     * rows must be the same for any RDBMS.
+     */
+    boolean explicitNullsOrder;
     private final HashMap<String, JoinedTable> allJoins = new HashMap();
-    private final HashMap<String, List<RemoteBeanRef>> remoteBeans = new HashMap<>();
+    private final Map<String, List<RemoteBeanRef>> remoteBeans;
+    final ViewParameters parameters = new ViewParameters();
 
     abstract Temporal version();
 
     AbstractDataView(Class<? extends DDataAttribute>[] roots, DDataFilter[] columns, DDataDictionariesService dictionariesService) {
-        this.roots = roots;
-        this.dictionariesService = dictionariesService;
-
-        rootEntity = new TableEntity(roots[0]);
-        String versionColumn = rootEntity.versionFrom == null ? "" : rootEntity.versionFrom.getColumnName();
-
-        for (Class<? extends DDataAttribute> root : roots)
-            for (DDataAttribute attr : root.getEnumConstants())
-                if (attr.getPropertyName() != null && rootEntity.attributes.stream()
-                        .noneMatch(a -> a.getPropertyName().equals(attr.getPropertyName()) &&
-                                        a.getJavaType().equals(attr.getJavaType()) && (
-                                        (a.joinBy() == null && attr.joinBy() == null) ||
-                                                (a.joinBy() != null && attr.joinBy() != null &&
-                                                        Arrays.equals(a.joinBy(), attr.joinBy()))
-                                )
-                        )) {
-                    rootEntity.attributes.add(attr);
-                    if (attr.isPrimaryKey()) {
-                        rootEntity.addCell(new TableCell(attr.getPropertyName(), attr,
-                                versionColumn.equals(attr.getColumnName())));
-                    }
-                }
-        tableEntities.put(null, rootEntity);
-
-        fillViewEntities(Arrays.asList(columns), null, rootEntity);
-    }
-
-    /**
-     * Добавляем в представление колонки идентификаторов связанных сущностей и поля использкуемые для связи
-     *
-     * @param columns список колонок определенных для загрузки
-     * @param path    путь до сущности, начинаем с null
-     * @param parent  родительская сущность
-     */
-    private void fillViewEntities(List<DDataFilter> columns, String path, final TableEntity parent) {
-        String parentVersionColumn = parent.versionFrom == null ? "" : parent.versionFrom.getColumnName();
-        // basic values (двигаемся по иерархии фильтра и добавляем листья дерева, простые поля-свойства)
-        for (DDataFilter column : columns) {
-            DDataAttribute attribute = column.getAttribute();
-            if (attribute != null && !attribute.isMappedBean()) {
-                String nameInPath = column.getMapName();
-                String cp = path == null ? nameInPath : (path + "." + nameInPath);
-                parent.addCell(new TableCell(cp, column, parentVersionColumn.equals(attribute.getColumnName())));
-            }
-        }
-        // mapped beans (для узлов дерева фильтра вызовем себя в рекурсии, но прежде...
-        for (DDataFilter column : columns) {
-            DDataAttribute attribute = column.getAttribute();
-            if (attribute != null && attribute.isMappedBean()) {
-                String nameInPath = column.getMapName();
-                String cp = path == null ? nameInPath : (path + "." + nameInPath);
-
-                TableEntity child = getEntityForPath(cp);
-                // если это новая сущность в нашем списке, то выясним чем она с нами связана
-                if (child == null) {
-                    child = new TableEntity(parent, cp, column);
-                    parent.addEntity(child);
-
-                    if (!column.isExternalData()) {
-                        // это не сущность получаемая от web-сервиса
-                        String versionColumn = child.versionFrom == null ? "" : child.versionFrom.getColumnName();
-                        for (DDataAttribute childAttr : child.attributes) {
-                            int idx = indexOf(attribute.joinOn(), childAttr.getColumnName());
-                            String childJoinedBy = idx < 0 ? null : attribute.joinBy()[idx];
-                            if (childAttr.isPrimaryKey() || childJoinedBy != null) {
-                                // идентификатор связной сущности или поле участвующее в связи
-                                TableCell idCell = new TableCell(
-                                        cp + "." + childAttr.getPropertyName(), childAttr,
-                                        versionColumn.equals(childAttr.getColumnName()));
-                                child.addCell(idCell);
-                                // добавили, а теперь для связи ...
-                                if (childJoinedBy != null) {
-                                    TableCell parentMapCell = parent.cells.stream()
-                                            .filter(c -> childJoinedBy.equals(c.attribute.getColumnName()))
-                                            .findAny().orElse(null);
-                                    if (parentMapCell == null) {
-                                        DDataAttribute parentMapAttr = parent.attributes.stream()
-                                                .filter(c -> !c.isMappedBean())
-                                                .filter(c -> childJoinedBy.equals(c.getColumnName()))
-                                                .findAny().orElse(null);
-                                        assert parentMapAttr != null;
-                                        parent.addCell(parentMapCell = new TableCell(
-                                                (path == null ? "" : path + ".") + parentMapAttr.getPropertyName(),
-                                                parentMapAttr,
-                                                false
-                                        ));
-                                    }
-                                    Map<TableEntity, TableCell> pm = parent.mappings.computeIfAbsent(parentMapCell,
-                                            (t) -> new HashMap<>());
-                                    pm.put(child, idCell);
-                                }
-                            }
-                        }
-                    } else {
-                        RemoteBeanRef rbr = new RemoteBeanRef(path, nameInPath, attribute.getBeanInterface(),
-                                attribute.joinOn() == null ? null : attribute.joinOn()[0]);
-                        for (DDataAttribute entityAttr : parent.attributes) {
-                            int idx = indexOf(attribute.joinBy(), entityAttr.getColumnName());
-                            String joinBy = idx < 0 ? null : attribute.joinBy()[idx];
-                            if (joinBy != null) {
-                                TableCell parentMapCell = parent.cells.stream()
-                                        .filter(c -> !c.attribute.isMappedBean())
-                                        .filter(c -> joinBy.equals(c.attribute.getColumnName()))
-                                        .findAny().orElseGet(() -> {
-                                            TableCell pmc = new TableCell(
-                                                    (path == null ? "" : path + ".") + entityAttr.getPropertyName(),
-                                                    entityAttr,
-                                                    false);
-                                            parent.addCell(pmc);
-                                            return pmc;
-                                        });
-                                rbr.addParameter(parentMapCell.name);
-                            }
-                        }
-                        remoteBeans.computeIfAbsent(path, k -> new ArrayList<>()).add(rbr);
-                    }
-                }
-
-                if (!column.isExternalData() && column.getFilters() != null)
-                    fillViewEntities(column.getFilters(), cp, child);
-            } else if (attribute == null && column.getFilters() != null)
-                // атрибут простой, но имеет вложенные фильтры не представляю как это может быть, но
-                fillViewEntities(column.getFilters(), path, parent);
-        }
+        this(new Definition(roots, columns), dictionariesService);
     }
 
-    private int indexOf(String[] names, String name) {
-        if (names != null && name != null)
-            for (int i = 0; i < names.length; i++) {
-                if (Objects.equals(name, names[i])) return i;
-            }
-        return -1;
+    AbstractDataView(Definition definition, DDataDictionariesService dictionariesService) {
+        this.definition = definition;
+        this.roots = definition.roots;
+        this.rootEntity = definition.rootEntity;
+        this.tableEntities = definition.tableEntities;
+        this.tableCells = definition.tableCells;
+        this.remoteBeans = definition.remoteBeans;
+        this.dictionariesService = dictionariesService;
     }
 
     TableEntity getEntityForPath(String s) {
@@ -186,9 +69,11 @@ abstract class AbstractDataView {
 
     DSQL buildFrom() {
         allJoins.clear();
+        parameters.clear();
         allJoins.put("", new JoinedTable(0, 0, null));
         joinedInRootQuery = new HashSet<>();
         columnsInRoot = new HashSet<>();
+        sortInRoot.clear();
         return new DSQL() {{
             FROM(rootEntity.table + " as t0");
         }};
@@ -341,8 +226,13 @@ abstract class AbstractDataView {
                     if (attribute.readExpression() != null)
                         val = attribute.readExpression().replace("?", val);
                     sql.SELECT(val + " AS \"" + pathAttributeName + "\"");
-                    if (column.isSortAscending() != null)
-                        sql.ORDER_BY(val + (column.isSortAscending() ? " ASC" : " DESC"));
+                    if (column.isSortAscending() != null) {
+                        boolean asc = column.isSortAscending();
+                        sql.ORDER_BY(val + (asc ? " ASC" : " DESC") +
+                                (explicitNullsOrder ? (asc ? " NULLS LAST" : " NULLS FIRST") : ""));
+                        if (columnsInSelect == columnsInRoot)
+                            sortInRoot.add(new SortColumn(val, pathAttributeName, attribute.getJdbcType(), asc));
+                    }
                 }
             }
         }
@@ -497,7 +387,6 @@ abstract class AbstractDataView {
                             condition = columnReference + filter.getOperator().toString();
                             break;
                         case 1:
-                            String value = filter.getValue().toString();
                             switch (filter.getOperator()) {
                                 case IN:
                                 case NOT_IN:
@@ -505,19 +394,17 @@ abstract class AbstractDataView {
                                         condition = columnReference + filter.getOperator().toString() + " " +
                                                 (((Object[]) filter.getValue()).length == 0 ? null :
                                                         "(" + Arrays.stream((Object[]) filter.getValue())
-                                                                .map(Object::toString)
-                                                                .map(v -> DDataTypes.maskedValue(columnType, v))
+                                                                .map(v -> parameters.add(columnType, v))
                                                                 .collect(Collectors.joining(",")) + ")");
                                     } else if (filter.getValue() instanceof Collection) {
                                         condition = columnReference + filter.getOperator().toString() + " " +
                                                 (((Collection<Object>) filter.getValue()).isEmpty() ? null :
                                                         "(" + ((Collection<Object>) filter.getValue()).stream()
-                                                                .map(Object::toString)
-                                                                .map(v -> DDataTypes.maskedValue(columnType, v))
+                                                                .map(v -> parameters.add(columnType, v))
                                                                 .collect(Collectors.joining(",")) + ")");
                                     } else
                                         condition = columnReference + filter.getOperator().toString() + " " +
-                                                ("(" + DDataTypes.maskedValue(columnType, filter.getValue().toString()) + ")");
+                                                ("(" + parameters.add(columnType, filter.getValue()) + ")");
                                     break;
                                 case LIKE:
                                 case NOT_LIKE:
@@ -534,14 +421,14 @@ abstract class AbstractDataView {
                                     break;
                                 default:
                                     condition = columnReference + filter.getOperator().toString() + " " +
-                                            DDataTypes.maskedValue(columnType, value);
+                                            parameters.add(columnType, filter.getValue());
                             }
                             break;
                         case 2: //BETWEEN only
                             condition = "(" + columnReference + "> " +
-                                    DDataTypes.maskedValue(columnType, filter.getValue().toString()) +
+                                    parameters.add(columnType, filter.getValue()) +
                                     " AND " + columnReference + "< " +
-                                    DDataTypes.maskedValue(columnType, filter.getValueTo().toString()) +
+                                    parameters.add(columnType, filter.getValueTo()) +
                                     ")";
                             break;
                         case 99: //SQL EXPRESSION
@@ -591,19 +478,15 @@ abstract class AbstractDataView {
     String versionConstraint(Class clazz, int toTableIndex) {
         if (selectAllVersions()) return "";
 
-        DDataAttribute versionFrom = null;
-        DDataAttribute versionTo = null;
-        try {
-            versionFrom = (DDataAttribute) clazz.getDeclaredField("VERSION_FROM").get(null);
-            versionTo = (DDataAttribute) clazz.getDeclaredField("VERSION_TO").get(null);
-        } catch (IllegalAccessException | NoSuchFieldException ignore) {
-        }
+        Object[] constants = beanConstants(clazz);
+        DDataAttribute versionFrom = (DDataAttribute) constants[0];
+        DDataAttribute versionTo = (DDataAttribute) constants[1];
         String sql;
         if (versionFrom != null && versionTo != null) {
             if (version() == null) {
                 sql = "t" + toTableIndex + ".\"" + versionTo.getColumnName() + "\" IS NULL";
             } else {
-                String timeSql = "CAST ('" + sqlTimestamp.format(version()) + "' AS TIMESTAMP)";
+                String timeSql = parameters.add("TIMESTAMP", sqlTimestamp.format(version()));
                 sql = "(t" + toTableIndex + ".\"" +
                         versionFrom.getColumnName() + "\" <= " + timeSql +
                         " AND (t" + toTableIndex + ".\"" + versionTo.getColumnName() +
@@ -618,14 +501,31 @@ abstract class AbstractDataView {
 
     abstract boolean selectAllVersions();
 
+    private static final Map<Class, Object[]> BEAN_CONSTANTS = new ConcurrentHashMap<>();
+
+    /**
+     * Read once static fields of *_WB_ enum used in SQL constraints.
+     *
+     * @param clazz *_WB_ enum
+     * @return VERSION_FROM, VERSION_TO, DISCR_ATTR, DISCR_VAL (null if not declared)
+     */
+    private static Object[] beanConstants(Class clazz) {
+        return BEAN_CONSTANTS.computeIfAbsent(clazz, c -> {
+            Object[] constants = new Object[4];
+            String[] names = {"VERSION_FROM", "VERSION_TO", "DISCR_ATTR", "DISCR_VAL"};
+            for (int i = 0; i < names.length; i++)
+                try {
+                    constants[i] = c.getDeclaredField(names[i]).get(null);
+                } catch (IllegalAccessException | NoSuchFieldException ignore) {
+                }
+            return constants;
+        });
+    }
+
     String typeConstraint(Class clazz, int toTableIndex) {
-        DDataAttribute discriminant = null;
-        String discriminantValue = null;
-        try {
-            discriminant = (DDataAttribute) clazz.getDeclaredField("DISCR_ATTR").get(null);
-            discriminantValue = (String) clazz.getDeclaredField("DISCR_VAL").get(null);
-        } catch (IllegalAccessException | NoSuchFieldException ignore) {
-        }
+        Object[] constants = beanConstants(clazz);
+        DDataAttribute discriminant = (DDataAttribute) constants[2];
+        String discriminantValue = (String) constants[3];
 
         if (discriminant != null && discriminantValue != null)
             return "t" + toTableIndex + ".\"" + discriminant.getColumnName() + "\"=" +
@@ -647,6 +547,15 @@ abstract class AbstractDataView {
         return keyType;
     }
 
+    /**
+     * Columns used in ORDER BY of the primary select, in order of sorting.
+     *
+     * @return sort columns
+     */
+    List<SortColumn> getSortInRoot() {
+        return sortInRoot;
+    }
+
     void addRootIdsToViewSql(DSQL sql) {
         for (DDataAttribute idAttribute : rootEntity.attributes)
             if (idAttribute.isPrimaryKey()) {
@@ -679,47 +588,79 @@ abstract class AbstractDataView {
         m.put(p[i], v);
     }
 
+    /**
+     * Prepare statement for SQL built by view and bind values of its parameters.
+     *
+     * @param sqlSession session used for obtain connection
+     * @param sql        SQL with markers of parameters
+     * @return prepared statement
+     * @throws SQLException on JDBC exceptions
+     */
     PreparedStatement prepareStatement(SqlSession sqlSession, String sql) throws SQLException {
-        return sqlSession.getConnection().prepareStatement(sql);
+        return prepareStatement(sqlSession.getConnection(), sql);
     }
 
+    PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        return prepareStatement(connection, parameters, sql);
+    }
+
+    private PreparedStatement prepareStatement(
+            Connection connection, ViewParameters values, String sql
+    ) throws SQLException {
+        if (LOG.isDebugEnabled()) LOG.debug("Parameters: " + values.toString(sql));
+        return values.prepare(connection, sql);
+    }
 
     List<Map<String, Object>> selectViewData(SqlSession sqlSession, String limitedSql) throws DDataException {
         List<Map<String, Object>> results = new ArrayList<>();
+        selectViewData(sqlSession, limitedSql, 0, results::add);
+        return results;
+    }
+
+    /**
+     * Read view data row by row, rows are not collected.
+     *
+     * @param sqlSession session used for obtain connection
+     * @param limitedSql SQL with markers of parameters
+     * @param fetchSize  JDBC fetch size hint, if 0 then driver default is used
+     * @param handler    receiver of rows
+     * @throws DDataException on JDBC exceptions or thrown by handler
+     */
+    void selectViewData(SqlSession sqlSession, String limitedSql, int fetchSize, RowHandler handler) throws DDataException {
+        selectViewData(sqlSession.getConnection(), limitedSql, fetchSize, handler);
+    }
+
+    void selectViewData(Connection connection, String limitedSql, int fetchSize, RowHandler handler) throws DDataException {
+        selectViewData(connection, parameters, limitedSql, fetchSize, handler);
+    }
+
+    /**
+     * Read view data with given values of parameters, used by statements executed
+     * in other threads with copy of parameters.
+     */
+    void selectViewData(
+            Connection connection, ViewParameters values, String limitedSql, int fetchSize, RowHandler handler
+    ) throws DDataException {
         try {
-            try (PreparedStatement pst = prepareStatement(sqlSession, limitedSql)) {
-                //TODO build view from really prepared statement, what can be cached by RDBMS
+            try (PreparedStatement pst = prepareStatement(connection, values, limitedSql)) {
+                if (fetchSize > 0) pst.setFetchSize(fetchSize);
                 try (ResultSet rs = pst.executeQuery()) {
                     ResultSetMetaData meta = rs.getMetaData();
                     int colCount = meta.getColumnCount();
                     String[] rsColumns = new String[colCount];
                     for (int i = 0; i < colCount; ) rsColumns[i] = meta.getColumnName(++i);
+                    RowLayout layout = new RowLayout(rsColumns);
+                    Map[] nodes = new Map[layout.nodeNames.length];
 
                     while (rs.next()) {
-                        HashMap<String, Object> row = new HashMap<>();
-                        results.add(row);
-                        HashSet<String> processedRemotes =
-                                dictionariesService == null || remoteBeans.isEmpty() ? null : new HashSet<>();
-                        for (int i = 0; i < colCount; ) {
-                            String colName = rsColumns[i++];
-                            TableCell column = tableCells.get(colName);
-                            putInHierarchy(row, colName, readColumnValue(rs, column, i, i));
-                            if (processedRemotes != null) {
-                                String path = colName.indexOf('.') > 0 ?
-                                        colName.substring(0, colName.lastIndexOf('.')) :
-                                        null;
-                                if (!processedRemotes.contains(path)) {
-                                    processedRemotes.add(path);
-                                    List<RemoteBeanRef> rbl = remoteBeans.get(path);
-                                    if (rbl != null)
-                                        for (RemoteBeanRef remoteBeanRef : rbl) {
-                                            putInHierarchy(row,
-                                                    (path == null ? "" : path + ".") + remoteBeanRef.nameInPath,
-                                                    getRemoteBeanValue(remoteBeanRef, rs, rsColumns));
-                                        }
-                                }
-                            }
-                        }
+                        Map<String, Object> row = layout.newRow(nodes);
+                        for (int i = 0; i < colCount; i++)
+                            nodes[layout.columnNodes[i]].put(layout.columnNames[i],
+                                    readColumnValue(rs, layout.cells[i], i + 1, i + 1));
+                        for (int i = 0; i < layout.remotes.length; i++)
+                            nodes[layout.remoteNodes[i]].put(layout.remoteNames[i],
+                                    getRemoteBeanValue(layout.remotes[i], rs, rsColumns));
+                        handler.handle(row);
                     }
                 }
             }
@@ -728,20 +669,114 @@ abstract class AbstractDataView {
             LOG.error("exception in DDataView: ", e);
             throw new DDataException("JDBC: " + e.getMessage());
         }
-        return results;
+    }
+
+    interface RowHandler {
+        void handle(Map<String, Object> row) throws DDataException;
+    }
+
+    /**
+     * Layout of result set columns in hierarchy of row maps. Built once for statement,
+     * so column names are not parsed for every row.
+     */
+    private class RowLayout {
+        // node 0 is a row, other nodes are maps for properties of inner beans
+        private final int[] nodeParents;
+        private final String[] nodeNames;
+        private final int[] nodeSizes;
+        private final int[] columnNodes;
+        private final String[] columnNames;
+        private final TableCell[] cells;
+        private final RemoteBeanRef[] remotes;
+        private final int[] remoteNodes;
+        private final String[] remoteNames;
+
+        private RowLayout(String[] rsColumns) {
+            ArrayList<Integer> parents = new ArrayList<>();
+            ArrayList<String> names = new ArrayList<>();
+            HashMap<String, Integer> nodeByPath = new HashMap<>();
+            parents.add(-1);
+            names.add(null);
+            nodeByPath.put("", 0);
+
+            columnNodes = new int[rsColumns.length];
+            columnNames = new String[rsColumns.length];
+            cells = new TableCell[rsColumns.length];
+            ArrayList<RemoteBeanRef> remoteList = new ArrayList<>();
+            ArrayList<Integer> remoteNodeList = new ArrayList<>();
+            ArrayList<String> remoteNameList = new ArrayList<>();
+            HashSet<String> processedRemotes =
+                    dictionariesService == null || remoteBeans.isEmpty() ? null : new HashSet<>();
+            for (int i = 0; i < rsColumns.length; i++) {
+                String colName = rsColumns[i];
+                int lastDot = colName.lastIndexOf('.');
+                String path = lastDot > 0 ? colName.substring(0, lastDot) : null;
+                columnNodes[i] = node(path, nodeByPath, parents, names);
+                columnNames[i] = colName.substring(lastDot + 1);
+                cells[i] = tableCells.get(colName);
+                if (processedRemotes != null && !processedRemotes.contains(path)) {
+                    processedRemotes.add(path);
+                    List<RemoteBeanRef> rbl = remoteBeans.get(path);
+                    if (rbl != null)
+                        for (RemoteBeanRef remoteBeanRef : rbl) {
+                            String remotePath = (path == null ? "" : path + ".") + remoteBeanRef.nameInPath;
+                            int remoteDot = remotePath.lastIndexOf('.');
+                            remoteList.add(remoteBeanRef);
+                            remoteNodeList.add(node(remoteDot > 0 ? remotePath.substring(0, remoteDot) : null,
+                                    nodeByPath, parents, names));
+                            remoteNameList.add(remotePath.substring(remoteDot + 1));
+                        }
+                }
+            }
+            remotes = remoteList.toArray(new RemoteBeanRef[0]);
+            remoteNodes = remoteNodeList.stream().mapToInt(Integer::intValue).toArray();
+            remoteNames = remoteNameList.toArray(new String[0]);
+            nodeParents = parents.stream().mapToInt(Integer::intValue).toArray();
+            nodeNames = names.toArray(new String[0]);
+            nodeSizes = new int[nodeNames.length];
+            for (int n = 1; n < nodeParents.length; n++) nodeSizes[nodeParents[n]]++;
+            for (int n : columnNodes) nodeSizes[n]++;
+            for (int n : remoteNodes) nodeSizes[n]++;
+        }
+
+        private int node(String path, HashMap<String, Integer> nodeByPath,
+                         ArrayList<Integer> parents, ArrayList<String> names) {
+            if (path == null) return 0;
+            Integer n = nodeByPath.get(path);
+            if (n == null) {
+                int lastDot = path.lastIndexOf('.');
+                int parent = node(lastDot > 0 ? path.substring(0, lastDot) : null, nodeByPath, parents, names);
+                n = parents.size();
+                parents.add(parent);
+                names.add(path.substring(lastDot + 1));
+                nodeByPath.put(path, n);
+            }
+            return n;
+        }
+
+        /**
+         * Create maps of a new row.
+         *
+         * @param nodes filled by maps of row, indexed as nodes of layout
+         * @return map of row
+         */
+        private Map<String, Object> newRow(Map[] nodes) {
+            for (int n = 0; n < nodes.length; n++) {
+                nodes[n] = new HashMap<String, Object>(nodeSizes[n] * 4 / 3 + 1);
+                if (n > 0) nodes[nodeParents[n]].put(nodeNames[n], nodes[n]);
+            }
+            return nodes[0];
+        }
     }
 
     private Object readColumnValue(
             ResultSet rs, TableCell column,
             int columnIndex,
             int rsIndex
-    ) throws SQLException, DDataException {
-        Object colVal;
-        if (column == null) {
-            colVal = rs.getObject(columnIndex);
-            if (rs.wasNull()) colVal = null;
-        } else colVal = getFromResultSet(rs, column.attribute.getJavaType(), rsIndex);
-        return colVal;
+    ) throws SQLException {
+        return column == null ?
+                ColumnReader.OBJECT.read(rs, columnIndex) :
+                column.reader.read(rs, rsIndex);
     }
 
     private HashMap<String, Object> getRemoteBeanValue(RemoteBeanRef remoteBeanRef, ResultSet rs, String[] rsColumns) throws SQLException, DDataException {
@@ -778,37 +813,6 @@ abstract class AbstractDataView {
         return result;
     }
 
-    private Object getFromResultSet(ResultSet rs, Class<?> ctype, int i) throws SQLException, DDataException {
-        if (ctype.isAssignableFrom(String.class)) return rs.getString(i);
-        if (ctype.isAssignableFrom(LocalDateTime.class)) {
-            Timestamp ts = rs.getTimestamp(i);
-            return ts == null || rs.wasNull() ? null : ts.toLocalDateTime();
-        }
-        if (ctype.isAssignableFrom(LocalDate.class)) {
-            java.sql.Date ts = rs.getDate(i);
-            return ts == null || rs.wasNull() ? null : ts.toLocalDate();
-        }
-        if (ctype.isAssignableFrom(LocalTime.class)) {
-            Time ts = rs.getTime(i);
-            return ts == null || rs.wasNull() ? null : ts.toLocalTime();
-        }
-        Object retVal;
-        if (ctype.isAssignableFrom(Integer.class)) retVal = rs.getInt(i);
-        else if (ctype.isAssignableFrom(Long.class)) retVal = rs.getLong(i);
-        else if (ctype.isAssignableFrom(Short.class)) retVal = rs.getShort(i);
-        else if (ctype.isAssignableFrom(Boolean.class)) retVal = rs.getBoolean(i);
-        else if (ctype.isAssignableFrom(Float.class)) retVal = rs.getFloat(i);
-        else if (ctype.isAssignableFrom(Double.class)) retVal = rs.getDouble(i);
-        else if (ctype.isAssignableFrom(Date.class) || ctype.isAssignableFrom(Timestamp.class))
-            retVal = rs.getTimestamp(i);
-        else if (ctype.isAssignableFrom(java.sql.Date.class)) retVal = rs.getDate(i);
-        else if (ctype.isAssignableFrom(java.sql.Time.class)) retVal = rs.getTime(i);
-        else if (ctype.isAssignableFrom(BigDecimal.class)) retVal = rs.getBigDecimal(i);
-        else if (ctype.isAssignableFrom(BigInteger.class)) retVal = BigInteger.valueOf(rs.getLong(i));
-        else retVal = rs.getObject(i);
-        return retVal == null || rs.wasNull() ? null : retVal;
-    }
-
     private String makeStringSearchCondition(DDataFilterOperator op, String columnReference, Object value) {
         if (value == null) return "FALSE";
         String columnExpression = columnReference;
@@ -853,7 +857,7 @@ abstract class AbstractDataView {
         return maskedVal == null ? "FALSE" :
                 columnExpression + " " + (isNot ? "NOT" : "") +
                         (isIterableValue ? " SIMILAR TO (" : " LIKE (") +
-                        DDataTypes.maskedValue("VARCHAR", maskedVal) + ")";
+                        parameters.add("VARCHAR", maskedVal) + ")";
     }
 
     private class JoinedTable {
@@ -894,17 +898,33 @@ abstract class AbstractDataView {
         }
     }
 
-    class TableCell {
+    static class SortColumn {
+        final String expression;
+        final String path;
+        final String jdbcType;
+        final boolean ascending;
+
+        private SortColumn(String expression, String path, String jdbcType, boolean ascending) {
+            this.expression = expression;
+            this.path = path;
+            this.jdbcType = jdbcType;
+            this.ascending = ascending;
+        }
+    }
+
+    static class TableCell {
         final String name;
         final DDataFilter column;
         final DDataAttribute attribute;
         final boolean isVersion;
+        final ColumnReader reader;
 
         TableCell(String path, DDataFilter column, boolean isVersion) {
             this.name = path;
             this.column = column;
             this.attribute = column.getAttribute();
             this.isVersion = isVersion;
+            this.reader = ColumnReader.forType(attribute.getJavaType());
         }
 
         TableCell(String path, DDataAttribute attribute, boolean isVersion) {
@@ -912,6 +932,7 @@ abstract class AbstractDataView {
             this.column = null;
             this.attribute = attribute;
             this.isVersion = isVersion;
+            this.reader = ColumnReader.forType(attribute.getJavaType());
         }
 
         public int hashCode() {
@@ -927,7 +948,7 @@ abstract class AbstractDataView {
     }
 
     @SuppressWarnings("JavaReflectionMemberAccess")
-    class TableEntity {
+    static class TableEntity {
         final TableEntity parent;
         final String name;
         final Class<? extends Serializable> beanInterface;
@@ -980,16 +1001,6 @@ abstract class AbstractDataView {
         boolean isCollection() {
             return collection;
         }
-
-        void addCell(TableCell cell) {
-            cells.add(cell);
-            tableCells.put(cell.name, cell);
-        }
-
-        void addEntity(TableEntity entity) {
-            entities.add(entity);
-            tableEntities.put("".equals(entity.name) ? null : entity.name, entity);
-        }
     }
 
     class SelectForTableBuilder {
@@ -1036,7 +1047,7 @@ abstract class AbstractDataView {
         }
     }
 
-    private class RemoteBeanRef {
+    private static class RemoteBeanRef {
         final String path;
         final String nameInPath;
         final List<String> parameters = new ArrayList<>();
@@ -1054,4 +1065,197 @@ abstract class AbstractDataView {
             parameters.add(parameterPath);
         }
     }
+
+    /**
+     * Entities and cells of view defined by roots and columns. Not changed after creation,
+     * so it may be shared by views with the same definition.
+     */
+    static final class Definition {
+        final Class<? extends DDataAttribute>[] roots;
+        final TableEntity rootEntity;
+        final HashMap<String, TableEntity> tableEntities = new HashMap<>();
+        final HashMap<String, TableCell> tableCells = new HashMap<>();
+        final HashMap<String, List<RemoteBeanRef>> remoteBeans = new HashMap<>();
+
+        Definition(Class<? extends DDataAttribute>[] roots, DDataFilter[] columns) {
+            this.roots = roots;
+
+            rootEntity = new TableEntity(roots[0]);
+            String versionColumn = rootEntity.versionFrom == null ? "" : rootEntity.versionFrom.getColumnName();
+
+            for (Class<? extends DDataAttribute> root : roots)
+                for (DDataAttribute attr : root.getEnumConstants())
+                    if (attr.getPropertyName() != null && rootEntity.attributes.stream()
+                            .noneMatch(a -> a.getPropertyName().equals(attr.getPropertyName()) &&
+                                            a.getJavaType().equals(attr.getJavaType()) && (
+                                            (a.joinBy() == null && attr.joinBy() == null) ||
+                                                    (a.joinBy() != null && attr.joinBy() != null &&
+                                                            Arrays.equals(a.joinBy(), attr.joinBy()))
+                                    )
+                            )) {
+                        rootEntity.attributes.add(attr);
+                        if (attr.isPrimaryKey()) {
+                            addCell(rootEntity, new TableCell(attr.getPropertyName(), attr,
+                                    versionColumn.equals(attr.getColumnName())));
+                        }
+                    }
+            tableEntities.put(null, rootEntity);
+
+            // definition is shared by views, it keeps own copy of filters
+            fillViewEntities(Arrays.stream(columns).map(DDataFilter::copy).collect(Collectors.toList()),
+                    null, rootEntity);
+        }
+
+        /**
+         * Добавляем в представление колонки идентификаторов связанных сущностей и поля использкуемые для связи
+         *
+         * @param columns список колонок определенных для загрузки
+         * @param path    путь до сущности, начинаем с null
+         * @param parent  родительская сущность
+         */
+        private void fillViewEntities(List<DDataFilter> columns, String path, final TableEntity parent) {
+            String parentVersionColumn = parent.versionFrom == null ? "" : parent.versionFrom.getColumnName();
+            // basic values (двигаемся по иерархии фильтра и добавляем листья дерева, простые поля-свойства)
+            for (DDataFilter column : columns) {
+                DDataAttribute attribute = column.getAttribute();
+                if (attribute != null && !attribute.isMappedBean()) {
+                    String nameInPath = column.getMapName();
+                    String cp = path == null ? nameInPath : (path + "." + nameInPath);
+                    addCell(parent, new TableCell(cp, column, parentVersionColumn.equals(attribute.getColumnName())));
+                }
+            }
+            // mapped beans (для узлов дерева фильтра вызовем себя в рекурсии, но прежде...
+            for (DDataFilter column : columns) {
+                DDataAttribute attribute = column.getAttribute();
+                if (attribute != null && attribute.isMappedBean()) {
+                    String nameInPath = column.getMapName();
+                    String cp = path == null ? nameInPath : (path + "." + nameInPath);
+
+                    TableEntity child = tableEntities.get(cp);
+                    // если это новая сущность в нашем списке, то выясним чем она с нами связана
+                    if (child == null) {
+                        child = new TableEntity(parent, cp, column);
+                        addEntity(parent, child);
+
+                        if (!column.isExternalData()) {
+                            // это не сущность получаемая от web-сервиса
+                            String versionColumn = child.versionFrom == null ? "" : child.versionFrom.getColumnName();
+                            for (DDataAttribute childAttr : child.attributes) {
+                                int idx = indexOf(attribute.joinOn(), childAttr.getColumnName());
+                                String childJoinedBy = idx < 0 ? null : attribute.joinBy()[idx];
+                                if (childAttr.isPrimaryKey() || childJoinedBy != null) {
+                                    // идентификатор связной сущности или поле участвующее в связи
+                                    TableCell idCell = new TableCell(
+                                            cp + "." + childAttr.getPropertyName(), childAttr,
+                                            versionColumn.equals(childAttr.getColumnName()));
+                                    addCell(child, idCell);
+                                    // добавили, а теперь для связи ...
+                                    if (childJoinedBy != null) {
+                                        TableCell parentMapCell = parent.cells.stream()
+                                                .filter(c -> childJoinedBy.equals(c.attribute.getColumnName()))
+                                                .findAny().orElse(null);
+                                        if (parentMapCell == null) {
+                                            DDataAttribute parentMapAttr = parent.attributes.stream()
+                                                    .filter(c -> !c.isMappedBean())
+                                                    .filter(c -> childJoinedBy.equals(c.getColumnName()))
+                                                    .findAny().orElse(null);
+                                            assert parentMapAttr != null;
+                                            addCell(parent, parentMapCell = new TableCell(
+                                                    (path == null ? "" : path + ".") + parentMapAttr.getPropertyName(),
+                                                    parentMapAttr,
+                                                    false
+                                            ));
+                                        }
+                                        Map<TableEntity, TableCell> pm = parent.mappings.computeIfAbsent(parentMapCell,
+                                                (t) -> new HashMap<>());
+                                        pm.put(child, idCell);
+                                    }
+                                }
+                            }
+                        } else {
+                            RemoteBeanRef rbr = new RemoteBeanRef(path, nameInPath, attribute.getBeanInterface(),
+                                    attribute.joinOn() == null ? null : attribute.joinOn()[0]);
+                            for (DDataAttribute entityAttr : parent.attributes) {
+                                int idx = indexOf(attribute.joinBy(), entityAttr.getColumnName());
+                                String joinBy = idx < 0 ? null : attribute.joinBy()[idx];
+                                if (joinBy != null) {
+                                    TableCell parentMapCell = parent.cells.stream()
+                                            .filter(c -> !c.attribute.isMappedBean())
+                                            .filter(c -> joinBy.equals(c.attribute.getColumnName()))
+                                            .findAny().orElseGet(() -> {
+                                                TableCell pmc = new TableCell(
+                                                        (path == null ? "" : path + ".") + entityAttr.getPropertyName(),
+                                                        entityAttr,
+                                                        false);
+                                                addCell(parent, pmc);
+                                                return pmc;
+                                            });
+                                    rbr.addParameter(parentMapCell.name);
+                                }
+                            }
+                            remoteBeans.computeIfAbsent(path, k -> new ArrayList<>()).add(rbr);
+                        }
+                    }
+
+                    if (!column.isExternalData() && column.getFilters() != null)
+                        fillViewEntities(column.getFilters(), cp, child);
+                } else if (attribute == null && column.getFilters() != null)
+                    // атрибут простой, но имеет вложенные фильтры не представляю как это может быть, но
+                    fillViewEntities(column.getFilters(), path, parent);
+            }
+        }
+
+        private int indexOf(String[] names, String name) {
+            if (names != null && name != null)
+                for (int i = 0; i < names.length; i++) {
+                    if (Objects.equals(name, names[i])) return i;
+                }
+            return -1;
+        }
+
+        /**
+         * Key of definition for caching, equal for views with the same roots and the same
+         * tree of columns.
+         *
+         * @param roots   roots of view
+         * @param columns columns of view
+         * @return key or null if some attribute of columns is not an enum constant
+         */
+        static String key(Class<? extends DDataAttribute>[] roots, DDataFilter[] columns) {
+            StringBuilder sb = new StringBuilder();
+            for (Class<? extends DDataAttribute> root : roots) sb.append(root.getName()).append(';');
+            for (DDataFilter column : columns)
+                if (!appendKey(sb, column)) return null;
+            return sb.toString();
+        }
+
+        private static boolean appendKey(StringBuilder sb, DDataFilter column) {
+            DDataAttribute attribute = column.getAttribute();
+            if (attribute != null && !(attribute instanceof Enum)) return false;
+            sb.append('(');
+            if (attribute != null)
+                sb.append(((Enum) attribute).getDeclaringClass().getName())
+                        .append('.').append(((Enum) attribute).name());
+            sb.append('|').append(column.getMapName()).append('|').append(column.isExternalData());
+            // values of EQUALS filters are used as fixed columns of entities
+            if (column.getOperator() == DDataFilterOperator.EQUALS && column.getValue() != null)
+                sb.append('=').append(column.getValue().getClass().getName())
+                        .append(':').append(column.getValue());
+            if (column.getFilters() != null)
+                for (DDataFilter filter : column.getFilters())
+                    if (!appendKey(sb, filter)) return false;
+            sb.append(')');
+            return true;
+        }
+
+        private void addCell(TableEntity entity, TableCell cell) {
+            entity.cells.add(cell);
+            tableCells.put(cell.name, cell);
+        }
+
+        private void addEntity(TableEntity parent, TableEntity entity) {
+            parent.entities.add(entity);
+            tableEntities.put("".equals(entity.name) ? null : entity.name, entity);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package org.docero.data.view;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reader of view column value from result set, resolved once by java type of attribute.
+ */
+@FunctionalInterface
+interface ColumnReader {
+    Object read(ResultSet rs, int i) throws SQLException;
+
+    ColumnReader OBJECT = (rs, i) -> {
+        Object v = rs.getObject(i);
+        return rs.wasNull() ? null : v;
+    };
+
+    static ColumnReader forType(Class<?> ctype) {
+        if (ctype.isAssignableFrom(String.class)) return ResultSet::getString;
+        if (ctype.isAssignableFrom(LocalDateTime.class))
+            return new TemporalReader(LocalDateTime.class, (rs, i) -> {
+                Timestamp ts = rs.getTimestamp(i);
+                return ts == null || rs.wasNull() ? null : ts.toLocalDateTime();
+            });
+        if (ctype.isAssignableFrom(LocalDate.class))
+            return new TemporalReader(LocalDate.class, (rs, i) -> {
+                java.sql.Date ts = rs.getDate(i);
+                return ts == null || rs.wasNull() ? null : ts.toLocalDate();
+            });
+        if (ctype.isAssignableFrom(LocalTime.class))
+            return new TemporalReader(LocalTime.class, (rs, i) -> {
+                Time ts = rs.getTime(i);
+                return ts == null || rs.wasNull() ? null : ts.toLocalTime();
+            });
+        if (ctype.isAssignableFrom(Integer.class)) return nullable(ResultSet::getInt);
+        if (ctype.isAssignableFrom(Long.class)) return nullable(ResultSet::getLong);
+        if (ctype.isAssignableFrom(Short.class)) return nullable(ResultSet::getShort);
+        if (ctype.isAssignableFrom(Boolean.class)) return nullable(ResultSet::getBoolean);
+        if (ctype.isAssignableFrom(Float.class)) return nullable(ResultSet::getFloat);
+        if (ctype.isAssignableFrom(Double.class)) return nullable(ResultSet::getDouble);
+        if (ctype.isAssignableFrom(Date.class) || ctype.isAssignableFrom(Timestamp.class))
+            return nullable(ResultSet::getTimestamp);
+        if (ctype.isAssignableFrom(java.sql.Date.class)) return nullable(ResultSet::getDate);
+        if (ctype.isAssignableFrom(Time.class)) return nullable(ResultSet::getTime);
+        if (ctype.isAssignableFrom(BigDecimal.class)) return nullable(ResultSet::getBigDecimal);
+        if (ctype.isAssignableFrom(BigInteger.class)) return nullable((rs, i) -> BigInteger.valueOf(rs.getLong(i)));
+        return OBJECT;
+    }
+
+    static ColumnReader nullable(ColumnReader reader) {
+        return (rs, i) -> {
+            Object v = reader.read(rs, i);
+            return v == null || rs.wasNull() ? null : v;
+        };
+    }
+
+    /**
+     * Reads java.time values by JDBC 4.2 getObject(int, Class), and falls back to
+     * conversion from java.sql types for the value driver can not convert.
+     * Drivers without getObject(int, Class) at all are remembered by class of result set.
+     */
+    final class TemporalReader implements ColumnReader {
+        private static final ClassValue<AtomicBoolean> SUPPORTED = new ClassValue<AtomicBoolean>() {
+            @Override
+            protected AtomicBoolean computeValue(Class<?> type) {
+                return new AtomicBoolean(true);
+            }
+        };
+        private final Class<?> type;
+        private final ColumnReader fallback;
+
+        private TemporalReader(Class<?> type, ColumnReader fallback) {
+            this.type = type;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int i) throws SQLException {
+            AtomicBoolean supported = SUPPORTED.get(rs.getClass());
+            if (supported.get()) try {
+                return rs.getObject(i, type);
+            } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                supported.set(false);
+            } catch (SQLException e) {
+                // только это значение, следующие строки снова читаем через getObject
+            }
+            return fallback.read(rs, i);
+        }
+    }
+}
@@ -49,10 +49,10 @@ public abstract class DDataBeanUpdateService<T> {
                 if (beanMapColumn != null) {
                     Object beanMapValue = getProperty(bean, beanMapColumn.attribute);
                     if (!DDataView.idIsNull(beanMapValue)) {
-                        row.setColumnValue(beanMapValue, entity.parent.isCollection() ? index : 0,
-                                parentMapColumn.name, false);
-                        row.setColumnValue(beanMapValue, entity.parent.isCollection() ? index : 0,
-                                beanMapColumn.name, false);
+                        row.setMappedColumnValue(beanMapValue, entity.parent.isCollection() ? index : 0,
+                                parentMapColumn.name);
+                        row.setMappedColumnValue(beanMapValue, entity.parent.isCollection() ? index : 0,
+                                beanMapColumn.name);
                         anyParentItemMayBeModified = true;
                     }
                 }
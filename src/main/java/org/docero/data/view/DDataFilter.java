@@ -237,6 +237,30 @@ public class DDataFilter {
         }
     }
 
+    private DDataFilter(DDataFilter source) {
+        attribute = source.attribute;
+        operator = source.operator;
+        value = source.value;
+        valueTo = source.valueTo;
+        externalData = source.externalData;
+        filters = source.filters == null ? null :
+                source.filters.stream().map(DDataFilter::copy).collect(Collectors.toCollection(ArrayList::new));
+        sortAscending = source.sortAscending;
+        mapName = source.mapName;
+        or = source.or;
+        notExists = source.notExists;
+    }
+
+    /**
+     * Copy of filters tree with all settings, kept by view definition, so later changes
+     * of filters given by caller are not seen by views sharing definition.
+     *
+     * @return copy of filter
+     */
+    DDataFilter copy() {
+        return new DDataFilter(this);
+    }
+
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     public DDataFilter clone() {
         try {
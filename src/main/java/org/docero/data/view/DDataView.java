@@ -7,15 +7,23 @@ import org.docero.data.utils.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.sql.*;
 import java.time.temporal.Temporal;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
 public class DDataView extends AbstractDataView {
@@ -37,7 +45,14 @@ public class DDataView extends AbstractDataView {
             Class<? extends DDataAttribute>[] roots,
             DDataFilter[] columns, Temporal version
     ) throws DDataException {
-        super(roots, columns, dictionariesService);
+        this(sqlSession, dictionariesService, new Definition(roots, columns), columns, version);
+    }
+
+    DDataView(
+            SqlSession sqlSession, DDataDictionariesService dictionariesService,
+            Definition definition, DDataFilter[] columns, Temporal version
+    ) throws DDataException {
+        super(definition, dictionariesService);
         this.sqlSession = sqlSession;
         this.columns = columns;
         if (columns.length > 0 && Arrays.stream(columns).noneMatch(c -> c.isSortAscending() != null))
@@ -93,12 +108,32 @@ public class DDataView extends AbstractDataView {
      * @throws DDataException on any logical exceptions
      */
     public long count() throws DDataException {
-        long result = 0;
         DSQL sql = buildFrom();
         sql.SELECT("COUNT(*)");
         buildFilters(sql);
+        return selectCount(sql.toString());
+        /*return sqlSession.selectOne("org.docero.data.selectCount",
+                Collections.singletonMap("sqlStatement", sql.toString()));*/
+    }
 
-        try (PreparedStatement pst = prepareStatement(sqlSession, sql.toString())) {
+    /**
+     * Select rows count for view with applied filter, but stop counting after upTo rows.
+     *
+     * @param upTo maximal returned count
+     * @return count of records, but not more than upTo
+     * @throws DDataException on any logical exceptions
+     */
+    public long count(long upTo) throws DDataException {
+        DSQL sql = buildFrom();
+        sql.SELECT("1");
+        buildFilters(sql);
+        return selectCount("SELECT COUNT(*) FROM (" + sql.toString() +
+                " LIMIT " + parameters.add("BIGINT", upTo) + ") AS t");
+    }
+
+    private long selectCount(String sql) throws DDataException {
+        long result = 0;
+        try (PreparedStatement pst = prepareStatement(sqlSession, sql)) {
             try (ResultSet rs = pst.executeQuery()) {
                 if (rs.next()) result = rs.getLong(1);
             }
@@ -107,13 +142,12 @@ public class DDataView extends AbstractDataView {
             throw new DDataException("JDBC: " + e.getMessage());
         }
         return result;
-        /*return sqlSession.selectOne("org.docero.data.selectCount",
-                Collections.singletonMap("sqlStatement", sql.toString()));*/
     }
 
     /**
      * Return SQL expression for select view data. View data may contains collections
      * in some columns, and then view use sub-selects, this method return only primary select.
+     * Values of filters are written in returned expression as literals.
      *
      * @param offset like a OFFSET in SQL (not used if limit=0)
      * @param limit  like a LIMIT in SQL but if 0 assumed as no limit
@@ -121,10 +155,15 @@ public class DDataView extends AbstractDataView {
      * @throws DDataException on any logical exceptions
      */
     public String firstLevelSelect(int offset, int limit) throws DDataException {
-        return firstLevelSelect(getKeySQL(), offset, limit);
+        return parameters.toLiteral(firstLevelSelect(getKeySQL(), offset, limit));
     }
 
     private String firstLevelSelect(String keySql, int offset, int limit) throws DDataException {
+        DSQL sql = firstLevelSql(keySql);
+        return limit > 0 ? addBounds(sql.toString(), offset, limit) : sql.toString();
+    }
+
+    private DSQL firstLevelSql(String keySql) throws DDataException {
         DSQL sql = buildFrom();
 
         sql.SELECT(keySql + " as \"dDataBeanKey_\"");
@@ -136,7 +175,7 @@ public class DDataView extends AbstractDataView {
                 }
         super.addRootIdsToViewSql(sql);
         buildFilters(sql);
-        return limit > 0 ? addBounds(sql.toString(), offset, limit) : sql.toString();
+        return sql;
     }
 
     /**
@@ -151,36 +190,315 @@ public class DDataView extends AbstractDataView {
         this.updates = new HashMap<>();
         String keySql = getKeySQL();
         String limitedSql = firstLevelSelect(keySql, offset, limit);
+        return new DDataViewRows(this, selectRows(keySql, limitedSql));
+    }
+
+    /**
+     * Select data for view with defined columns and applied filter, and count of all rows
+     * for applied filter in the same statement.
+     *
+     * @param offset like a OFFSET in SQL (not used if limit=0)
+     * @param limit  like a LIMIT in SQL but if 0 assumed as no limit
+     * @return rows object with total count of rows
+     * @throws DDataException on any logical exceptions
+     * @see DDataViewRows#getTotal()
+     */
+    public DDataViewRows selectWithTotal(int offset, int limit) throws DDataException {
+        return selectWithTotal(offset, limit, 0);
+    }
 
-        if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + limitedSql);
+    /**
+     * Select data for view with defined columns and applied filter, and count of all rows
+     * for applied filter in the same statement. Counting stops after countUpTo rows.
+     *
+     * @param offset    like a OFFSET in SQL (not used if limit=0)
+     * @param limit     like a LIMIT in SQL but if 0 assumed as no limit
+     * @param countUpTo maximal counted rows, if 0 then all rows are counted
+     * @return rows object with total count of rows, but not more than countUpTo
+     * @throws DDataException on any logical exceptions
+     * @see DDataViewRows#getTotal()
+     */
+    public DDataViewRows selectWithTotal(int offset, int limit, long countUpTo) throws DDataException {
+        this.updates = new HashMap<>();
+        String keySql = getKeySQL();
+        DSQL sql = firstLevelSql(keySql);
+        String limitedSql;
+        if (countUpTo > 0) {
+            // rows are numbered in order of view before counted rows are limited
+            String order = getSortInRoot().stream()
+                    .map(c -> c.expression + (c.ascending ? " ASC" : " DESC"))
+                    .collect(Collectors.joining(", "));
+            sql.SELECT("ROW_NUMBER() OVER(ORDER BY " + (order.isEmpty() ? keySql : order) +
+                    ") AS \"dDataRowNumber_\"");
+            String counted = "SELECT t.*, COUNT(*) OVER() AS \"dDataTotal_\" FROM (" + sql.toString() +
+                    " LIMIT " + parameters.add("BIGINT", countUpTo) + ") AS t ORDER BY t.\"dDataRowNumber_\"";
+            limitedSql = limit > 0 ? addBounds(counted, offset, limit) : counted;
+        } else {
+            sql.SELECT("COUNT(*) OVER() AS \"dDataTotal_\"");
+            limitedSql = limit > 0 ? addBounds(sql.toString(), offset, limit) : sql.toString();
+        }
+
+        List<Map<String, Object>> resultMap = selectRows(keySql, limitedSql);
+        long total = 0;
+        for (Map<String, Object> row : resultMap) {
+            Object t = row.remove("dDataTotal_");
+            if (t instanceof Number) total = ((Number) t).longValue();
+            row.remove("dDataRowNumber_");
+        }
+        if (resultMap.isEmpty() && offset > 0)
+            // page is out of rows, so window function returns nothing
+            total = countUpTo > 0 ? count(countUpTo) : count();
+
+        DDataViewRows rows = new DDataViewRows(this, resultMap);
+        rows.setTotal(total);
+        return rows;
+    }
+
+    private List<Map<String, Object>> selectRows(String keySql, String limitedSql) throws DDataException {
+        if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + parameters.toJdbc(limitedSql, null));
         List<Map<String, Object>> resultMap = selectViewData(sqlSession, limitedSql);
         if (LOG.isDebugEnabled()) LOG.debug("Total: " + resultMap.size());
 
-        if (resultMap.size() > 0) {
-            String in_condition = keySql + " IN (" + resultMap.stream()
-                    .map(v -> v.get("dDataBeanKey_"))
-                    .map(k -> DDataTypes.maskedValue(getKeyType(), k.toString()))
+        if (resultMap.size() > 0)
+            selectCollections(collectionSelects(), keySql, resultMap);
+        return resultMap;
+    }
+
+    /**
+     * Select page of data for view, what follows given row in order of view (keyset pagination).
+     * Rows are ordered by sorted columns of view and then by key of root bean, NULL values
+     * are placed last for ascending and first for descending columns.
+     *
+     * @param after continuation of previous page returned by {@link DDataViewRows#continuation()},
+     *              if null then first page is selected
+     * @param limit count of rows on page, if 0 assumed as no limit
+     * @return rows object
+     * @throws DDataException on any logical exceptions
+     */
+    public DDataViewRows selectAfter(Object[] after, int limit) throws DDataException {
+        this.updates = new HashMap<>();
+        String keySql = getKeySQL();
+        DSQL sql;
+        explicitNullsOrder = true;
+        try {
+            sql = firstLevelSql(keySql);
+        } finally {
+            explicitNullsOrder = false;
+        }
+        sql.ORDER_BY(keySql);
+        List<SortColumn> order = new ArrayList<>(getSortInRoot());
+        if (after != null) {
+            if (after.length != order.size() + 1)
+                throw new DDataException("continuation does not match order of view");
+            sql.WHERE(keysetCondition(order, after, keySql));
+        }
+        String limitedSql = limit > 0 ? addBounds(sql.toString(), 0, limit) : sql.toString();
+
+        List<Map<String, Object>> resultMap = selectRows(keySql, limitedSql);
+        DDataViewRows rows = new DDataViewRows(this, resultMap);
+        if (!resultMap.isEmpty()) {
+            Map<Object, Object> last = (Map) resultMap.get(resultMap.size() - 1);
+            Object[] continuation = new Object[order.size() + 1];
+            for (int i = 0; i < order.size(); i++)
+                continuation[i] = DDataViewRow.getColumnValue(last, 0, order.get(i).path);
+            continuation[order.size()] = last.get("dDataBeanKey_");
+            rows.setContinuation(continuation);
+        }
+        return rows;
+    }
+
+    /**
+     * Build condition for rows following given values of sort columns in order of view:
+     * (c1 &gt; v1) OR (c1 = v1 AND ((c2 &gt; v2) OR (c2 = v2 AND key &gt; vk)))
+     */
+    private String keysetCondition(List<SortColumn> order, Object[] after, String keySql) {
+        String condition = keySql + " > " + parameters.add(getKeyType(), after[order.size()]);
+        for (int i = order.size() - 1; i >= 0; i--) {
+            SortColumn c = order.get(i);
+            String following;
+            String equal;
+            if (after[i] == null) {
+                following = c.ascending ? null : c.expression + " IS NOT NULL";
+                equal = c.expression + " IS NULL";
+            } else {
+                String v = parameters.add(c.jdbcType, after[i]);
+                following = c.ascending ?
+                        "(" + c.expression + " > " + v + " OR " + c.expression + " IS NULL)" :
+                        c.expression + " < " + v;
+                equal = c.expression + " = " + v;
+            }
+            condition = "(" + (following == null ? "" : following + " OR ") +
+                    "(" + equal + " AND " + condition + "))";
+        }
+        return condition;
+    }
+
+    /**
+     * Read all data of view with defined columns and applied filter row by row.
+     * Rows are not collected in memory, collections of rows are selected by chunks
+     * of fetchSize rows. For PostgreSQL result set is read by cursor only if
+     * connection is not in auto-commit mode.
+     *
+     * @param fetchSize count of rows fetched from database at once
+     * @param consumer  receiver of rows
+     * @throws DDataException on any logical exceptions
+     */
+    public void stream(int fetchSize, Consumer<DDataViewRow> consumer) throws DDataException {
+        if (fetchSize <= 0) throw new DDataException("fetch size must be positive");
+        this.updates = new HashMap<>();
+        String keySql = getKeySQL();
+        String sql = firstLevelSelect(keySql, 0, 0);
+        List<String> subSelects = collectionSelects();
+
+        if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + parameters.toJdbc(sql, null));
+        List<Map<String, Object>> chunk = new ArrayList<>(subSelects.isEmpty() ? 1 : fetchSize);
+        selectViewData(sqlSession, sql, fetchSize, row -> {
+            chunk.add(row);
+            if (chunk.size() >= fetchSize || subSelects.isEmpty())
+                flushChunk(subSelects, keySql, chunk, consumer);
+        });
+        flushChunk(subSelects, keySql, chunk, consumer);
+    }
+
+    /**
+     * Read all data of view row by row with default fetch size.
+     *
+     * @param consumer receiver of rows
+     * @throws DDataException on any logical exceptions
+     * @see #stream(int, Consumer)
+     */
+    public void stream(Consumer<DDataViewRow> consumer) throws DDataException {
+        stream(STREAM_FETCH_SIZE, consumer);
+    }
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private void flushChunk(
+            List<String> subSelects, String keySql,
+            List<Map<String, Object>> chunk, Consumer<DDataViewRow> consumer
+    ) throws DDataException {
+        if (chunk.isEmpty()) return;
+        if (!subSelects.isEmpty()) selectCollections(subSelects, keySql, chunk);
+        for (Map<String, Object> row : chunk) consumer.accept(new DDataViewRow(this, row));
+        chunk.clear();
+    }
+
+    private static final String KEYS_CONDITION = "#{dDataBeanKeys_}";
+
+    /**
+     * Build SQL for collections in view, condition on keys of rows is written as
+     * KEYS_CONDITION and replaced by selectCollections.
+     */
+    private List<String> collectionSelects() {
+        List<String> result = new ArrayList<>();
+        for (DSQL subSelect : getSubSelects()) {
+            subSelect.WHERE(KEYS_CONDITION);
+
+            String vc = versionConstraint(roots[0], 0);
+            if (vc.length() > 0) subSelect.WHERE(vc);
+            result.add(subSelect.toString());
+        }
+        return result;
+    }
+
+    private void selectCollections(
+            List<String> subSelects, String keySql, List<Map<String, Object>> resultMap
+    ) throws DDataException {
+        int parametersCount = parameters.size();
+        try {
+            HashMap<Object, Map<String, Object>> rowsByKey = new HashMap<>(resultMap.size() * 4 / 3 + 1);
+            for (Map<String, Object> row : resultMap) rowsByKey.putIfAbsent(row.get("dDataBeanKey_"), row);
+            String in_condition = keySql + " IN (" + rowsByKey.keySet().stream()
+                    .map(k -> parameters.add(getKeyType(), k))
                     .collect(Collectors.joining(",")) +
                     ")";
-            for (DSQL subSelect : getSubSelects()) {
-                subSelect.WHERE(in_condition);
-
-                String vc = versionConstraint(roots[0], 0);
-                if (vc.length() > 0) subSelect.WHERE(vc);
+            if (subSelectsExecutor != null && subSelects.size() > 1)
+                selectCollectionsConcurrently(subSelects, in_condition, rowsByKey);
+            else for (String subSelectSql : subSelects) {
+                String sql = subSelectSql.replace(KEYS_CONDITION, in_condition);
+
+                if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + parameters.toJdbc(sql, null));
+                AtomicInteger counter = new AtomicInteger();
+                selectViewData(sqlSession, sql, 0, row -> {
+                    counter.incrementAndGet();
+                    Map<String, Object> p = rowsByKey.get(row.get("dDataBeanKey_"));
+                    if (p != null) mergeSubSelect(p, row);
+                });
+                if (LOG.isDebugEnabled()) LOG.debug("Total: " + counter);
+            }
+        } finally {
+            // keys of rows are not bound to next statements of view, even after failure
+            parameters.truncate(parametersCount);
+        }
+    }
 
-                if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + subSelect.toString());
-                List<Map<String, Object>> subResult = selectViewData(sqlSession, subSelect.toString());
+    private void selectCollectionsConcurrently(
+            List<String> subSelects, String in_condition, HashMap<Object, Map<String, Object>> rowsByKey
+    ) throws DDataException {
+        DataSource dataSource = sqlSession.getConfiguration().getEnvironment().getDataSource();
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        for (String subSelectSql : subSelects) {
+            String sql = subSelectSql.replace(KEYS_CONDITION, in_condition);
+            // задача получает свою копию параметров, параметры представления меняются следующими запросами
+            ViewParameters values = parameters.copy();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                List<Map<String, Object>> subResult = new ArrayList<>();
+                if (failed.get()) return subResult;
+                if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + values.toJdbc(sql, null));
+                try (Connection connection = dataSource.getConnection()) {
+                    selectViewData(connection, values, sql, 0, subResult::add);
+                } catch (SQLException | DDataException e) {
+                    throw new CompletionException(e);
+                }
                 if (LOG.isDebugEnabled()) LOG.debug("Total: " + subResult.size());
-
-                if (!subResult.isEmpty())
-                    for (Map<String, Object> row : subResult)
-                        resultMap.stream()
-                                .filter(m -> m.get("dDataBeanKey_").equals(row.get("dDataBeanKey_")))
-                                .findFirst()
-                                .ifPresent(p -> mergeSubSelect(p, row));
+                return subResult;
+            }, subSelectsExecutor));
+        }
+        // rows are merged in calling thread, maps of rows are not thread-safe
+        for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+            List<Map<String, Object>> subResult;
+            try {
+                subResult = future.join();
+            } catch (CompletionException e) {
+                // не начатые подзапросы не выполняются, выполняемые дожидаемся
+                failed.set(true);
+                awaitAll(futures);
+                LOG.error("exception in DDataView", e.getCause());
+                if (e.getCause() instanceof DDataException) throw (DDataException) e.getCause();
+                throw new DDataException("JDBC: " + e.getCause().getMessage());
+            }
+            for (Map<String, Object> row : subResult) {
+                Map<String, Object> p = rowsByKey.get(row.get("dDataBeanKey_"));
+                if (p != null) mergeSubSelect(p, row);
             }
         }
-        return new DDataViewRows(this, resultMap);
+    }
+
+    /**
+     * Wait for sub-selects still running after failure of one of them, so they are not
+     * running when view is used again.
+     */
+    private static void awaitAll(List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> f : futures)
+            try {
+                f.join();
+            } catch (CompletionException ignore) {
+            }
+    }
+
+    private Executor subSelectsExecutor;
+
+    /**
+     * Set executor used for concurrent execution of sub-selects for collection columns.
+     * Each sub-select is executed on its own connection obtained from data source of
+     * session, so sub-selects don't see changes not committed by transaction of view.
+     * By default (null) sub-selects are executed sequentially on connection of session.
+     *
+     * @param executor bounded executor or null
+     */
+    public void setSubSelectsExecutor(Executor executor) {
+        this.subSelectsExecutor = executor;
     }
 
     /**
@@ -193,6 +511,79 @@ public class DDataView extends AbstractDataView {
         return new DDataViewRows(this, new ArrayList<Map<String, Object>>());
     }
 
+    /**
+     * Filler of new view row by value of loaded source
+     *
+     * @param <T> type of source values
+     */
+    @FunctionalInterface
+    public interface RowLoader<T> {
+        void fill(T value, DDataViewRow row) throws DDataException;
+    }
+
+    /**
+     * Insert new records for values of source. Values are read by chunks of chunkSize rows,
+     * every chunk is written by {@link #flushUpdates(DDataExceptionHandler)} with batches
+     * per entity and released before next chunk is read, so only one chunk is held in memory.
+     * Ids of beans and mappings between parent and child beans are filled in every chunk.
+     * Row which filling failed is removed from chunk and not written.
+     *
+     * @param source           values for new rows
+     * @param loader           filler of row by value
+     * @param chunkSize        count of rows written at once
+     * @param exceptionHandler class for exceptions handling, called for every failed row
+     * @param <T>              type of source values
+     * @return count of rows passed to writing
+     * @throws SQLException   on jdbc exceptions
+     * @throws DDataException on any logical exceptions
+     */
+    public <T> long load(
+            Iterator<T> source, RowLoader<? super T> loader, int chunkSize, DDataExceptionHandler exceptionHandler
+    ) throws SQLException, DDataException {
+        if (chunkSize <= 0) throw new DDataException("chunk size must be positive");
+        long loaded = 0;
+        while (source.hasNext()) {
+            DDataViewRows rows = buildDataLoader();
+            while (rows.size() < chunkSize && source.hasNext()) {
+                T value = source.next();
+                DDataViewRow row = rows.addRow();
+                try {
+                    loader.fill(value, row);
+                } catch (Exception e) {
+                    // не заполненная строка не пишется
+                    rows.removeRow(row);
+                    updates.remove(row);
+                    exceptionHandler.handle(e);
+                }
+            }
+            flushUpdates(exceptionHandler);
+            loaded += rows.size();
+            if (LOG.isDebugEnabled()) LOG.debug("Loaded: " + loaded);
+        }
+        this.updates = new HashMap<>();
+        return loaded;
+    }
+
+    /**
+     * Insert new records for values of stream, by chunks of 1000 rows.
+     *
+     * @param source           values for new rows
+     * @param loader           filler of row by value
+     * @param exceptionHandler class for exceptions handling, called for every failed row
+     * @param <T>              type of source values
+     * @return count of rows passed to writing
+     * @throws SQLException   on jdbc exceptions
+     * @throws DDataException on any logical exceptions
+     * @see #load(Iterator, RowLoader, int, DDataExceptionHandler)
+     */
+    public <T> long load(
+            Stream<T> source, RowLoader<? super T> loader, DDataExceptionHandler exceptionHandler
+    ) throws SQLException, DDataException {
+        return load(source.iterator(), loader, LOAD_CHUNK_SIZE, exceptionHandler);
+    }
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
     @SuppressWarnings("unchecked")
     private void mergeSubSelect(Map<String, Object> dest, Map<String, Object> src) {
         for (Map.Entry<String, Object> e : src.entrySet()) {
@@ -245,7 +636,7 @@ public class DDataView extends AbstractDataView {
         sql.GROUP_BY(keySql);
         agSql.FROM("(" + sql.toString() + ") AS t");
 
-        if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + agSql.toString());
+        if (LOG.isDebugEnabled()) LOG.debug("Preparing: " + parameters.toJdbc(agSql.toString(), null));
         List<Map<String, Object>> result = selectViewData(sqlSession, agSql.toString());
         if (LOG.isDebugEnabled()) LOG.debug("Total: " + result.size());
         if (result.isEmpty()) return new int[]{0};
@@ -261,8 +652,8 @@ public class DDataView extends AbstractDataView {
     }
 
     private String addBounds(String s, int offset, int limit) {
-        String limits = (offset > 0 ? " OFFSET " + offset : "") +
-                (limit > 0 ? " LIMIT " + limit : "");
+        String limits = " OFFSET " + parameters.add("INTEGER", Math.max(offset, 0)) +
+                " LIMIT " + parameters.add("INTEGER", limit);
         if (s.endsWith(";")) {
             return s.substring(0, s.length() - 1) + limits + ";";
         } else {
@@ -314,6 +705,18 @@ public class DDataView extends AbstractDataView {
         update.computeIfAbsent(beanPath, k -> new HashSet<>()).add(index);
     }
 
+    private int updatesBatchSize = 500;
+
+    /**
+     * Set maximal count of rows added to JDBC batch of one statement before batches are
+     * executed by flushUpdates(). Default is 500.
+     *
+     * @param batchSize count of rows, 1 executes each row separately
+     */
+    public void setUpdatesBatchSize(int batchSize) {
+        this.updatesBatchSize = Math.max(batchSize, 1);
+    }
+
     /**
      * Write updates on view rows.
      *
@@ -354,7 +757,7 @@ public class DDataView extends AbstractDataView {
                     exceptionHandler.handle(e);
                 }
             // next, write updated rows to database
-            for (DDataViewRow row : updates.keySet())
+            for (DDataViewRow row : updates.keySet()) {
                 try {
                     TreeMap<String, Set<Integer>> updatedEntities = updates.get(row);
 
@@ -373,7 +776,11 @@ public class DDataView extends AbstractDataView {
                 } catch (Exception e) {
                     exceptionHandler.handle(e);
                 }
-            for (PreparedUpdates pk : prepared) pk.execute();
+                // batches are executed all together in order of entities, parents before children
+                if (prepared.stream().anyMatch(pk -> pk.pending() >= updatesBatchSize))
+                    for (PreparedUpdates pk : prepared) pk.execute(exceptionHandler);
+            }
+            for (PreparedUpdates pk : prepared) pk.execute(exceptionHandler);
         } finally {
             for (PreparedUpdates pk : prepared) pk.close();
             //sqlSession.clearCache();
@@ -550,7 +957,7 @@ public class DDataView extends AbstractDataView {
             if (cell.attribute.equals(entity.versionFrom) && (
                     Temporal.class.isAssignableFrom(cell.attribute.getJavaType()) ||
                             Date.class.isAssignableFrom(cell.attribute.getJavaType())))
-                row.setColumnValue(dateNow, index, idPropertyPath, false);
+                row.setMappedColumnValue(dateNow, index, idPropertyPath);
             else if (entity.parent != null) {
                 Map.Entry<TableCell, TableCell> mapEntry = entity.parent.mappings.entrySet().stream()
                         .filter(m -> m.getValue().get(entity) != null)
@@ -568,12 +975,9 @@ public class DDataView extends AbstractDataView {
                 String genValue = gen.value().length() == 0 ? gen.generator() : gen.value();
                 switch (gen.strategy()) {
                     case SEQUENCE:
-                        try (PreparedStatement st = connection.prepareStatement("SELECT nextval(?);")) {
-                            st.setString(1, genValue);
-                            try (ResultSet rs = st.executeQuery()) {
-                                if (rs.next()) idValue = idFromResult(rs, cell.attribute);
-                            }
-                        }
+                        idValue = idFromSequence(SequenceIds.next(
+                                sqlSession.getConfiguration().getEnvironment().getDataSource(),
+                                connection, genValue), cell.attribute);
                         break;
                     case SELECT:
                         try (Statement st = connection.createStatement()) {
@@ -584,7 +988,7 @@ public class DDataView extends AbstractDataView {
                         break;
                 }
                 if (idValue != null)
-                    row.setColumnValue(idValue, index, idPropertyPath, false);
+                    row.setMappedColumnValue(idValue, index, idPropertyPath);
             }
         }
     }
@@ -603,6 +1007,16 @@ public class DDataView extends AbstractDataView {
             throw new RuntimeException("can't set property " + idPropertyPath);
     }
 
+    private Object idFromSequence(long id, DDataAttribute idAttribute) {
+        if (Integer.class.isAssignableFrom(idAttribute.getJavaType()))
+            return (int) id;
+        if (Long.class.isAssignableFrom(idAttribute.getJavaType()))
+            return id;
+        if (Short.class.isAssignableFrom(idAttribute.getJavaType()))
+            return (short) id;
+        return null;
+    }
+
     private Object idFromResult(ResultSet rs, DDataAttribute idAttribute) throws SQLException {
         if (Integer.class.isAssignableFrom(idAttribute.getJavaType()))
             return rs.getInt(1);
@@ -7,11 +7,22 @@ import org.docero.data.utils.DDataException;
 import org.mybatis.spring.support.SqlSessionDaoSupport;
 
 import java.time.temporal.Temporal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @SuppressWarnings({"unchecked", "unused"})
 public class DDataViewBuilder extends SqlSessionDaoSupport {
     private DDataDictionariesService dictionariesService;
+    private static final int DEFINITIONS_CACHE_SIZE = 256;
+    private final Map<String, AbstractDataView.Definition> definitions = Collections.synchronizedMap(
+            new LinkedHashMap<String, AbstractDataView.Definition>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AbstractDataView.Definition> eldest) {
+                    return size() > DEFINITIONS_CACHE_SIZE;
+                }
+            });
 
     public DDataViewBuilder(SqlSessionFactory sqlSessionFactory, DDataDictionariesService dictionariesService) {
         super.setSqlSessionFactory(sqlSessionFactory);
@@ -19,8 +30,7 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(List<Class<? extends DDataAttribute>> alternativeRoots, List<DDataFilter> columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 alternativeRoots.toArray(new Class[alternativeRoots.size()]),
                 columns.toArray(new DDataFilter[columns.size()]),
                 null
@@ -28,8 +38,7 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(Class<? extends DDataAttribute> root, List<DDataFilter> columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 new Class[]{root},
                 columns.toArray(new DDataFilter[columns.size()]),
                 null
@@ -37,8 +46,7 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(Class<? extends DDataAttribute> root, DDataFilter... columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 new Class[]{root},
                 columns,
                 null
@@ -46,8 +54,7 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(List<Class<? extends DDataAttribute>> alternativeRoots, Temporal version, List<DDataFilter> columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 alternativeRoots.toArray(new Class[alternativeRoots.size()]),
                 columns.toArray(new DDataFilter[columns.size()]),
                 version
@@ -55,8 +62,7 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(Class<? extends DDataAttribute> root, Temporal version, List<DDataFilter> columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 new Class[]{root},
                 columns.toArray(new DDataFilter[columns.size()]),
                 version
@@ -64,11 +70,25 @@ public class DDataViewBuilder extends SqlSessionDaoSupport {
     }
 
     public DDataView build(Class<? extends DDataAttribute> root, Temporal version, DDataFilter... columns) throws DDataException {
-        return new DDataView(
-                getSqlSession(), dictionariesService,
+        return view(
                 new Class[]{root},
                 columns,
                 version
         );
     }
+
+    /**
+     * Create view using definition of entities and cells cached for the same roots and columns.
+     */
+    private DDataView view(
+            Class<? extends DDataAttribute>[] roots, DDataFilter[] columns, Temporal version
+    ) throws DDataException {
+        String key = AbstractDataView.Definition.key(roots, columns);
+        AbstractDataView.Definition definition = key == null ? null : definitions.get(key);
+        if (definition == null) {
+            definition = new AbstractDataView.Definition(roots, columns);
+            if (key != null) definitions.put(key, definition);
+        }
+        return new DDataView(getSqlSession(), dictionariesService, definition, columns, version);
+    }
 }
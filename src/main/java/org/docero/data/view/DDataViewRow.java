@@ -21,6 +21,13 @@ public class DDataViewRow {
         } else map = null;
     }
 
+    /**
+     * @return key of row in view (dDataBeanKey_)
+     */
+    Object key() {
+        return map == null ? null : map.get("dDataBeanKey_");
+    }
+
     public Object[] getColumn(DDataAttribute... path) {
         return getColumn(Arrays.stream(path)
                 .map(DDataAttribute::getPropertyName)
@@ -181,7 +188,42 @@ public class DDataViewRow {
                 innerMap.put(path[offset], value);
         }
 
-        if (addViewUpdate) view.addUpdate(this, index, path2Parameter);
+        if (addViewUpdate) {
+            view.addUpdate(this, index, path2Parameter);
+            markModified(index, path2Parameter);
+        }
+    }
+
+    /**
+     * Set value of mapping or id column by framework, it's not added as update of view,
+     * but written by update of entity as modified cell.
+     *
+     * @param value          устанавливаемое значение
+     * @param index          индекс значения в колонке представлении
+     * @param path2Parameter из имён свойств через точку (определит колонку)
+     */
+    void setMappedColumnValue(Object value, int index, String path2Parameter) throws DDataException {
+        setColumnValue(value, index, path2Parameter, false);
+        markModified(index, path2Parameter);
+    }
+
+    private void markModified(int index, String path2Parameter) {
+        int i = path2Parameter.lastIndexOf('.');
+        if (modifiedCells == null) modifiedCells = new HashMap<>();
+        modifiedCells.computeIfAbsent((i < 0 ? "" : path2Parameter.substring(0, i)) + ":" + index,
+                k -> new HashSet<>()).add(path2Parameter);
+    }
+
+    private HashMap<String, Set<String>> modifiedCells = null;
+
+    /**
+     * @param updatedIndex индекс значения в колонке представлении
+     * @param name         путь до сущности
+     * @return names of cells of entity modified by setColumnValue()
+     */
+    Set<String> modifiedCells(Integer updatedIndex, String name) {
+        Set<String> cells = modifiedCells == null ? null : modifiedCells.get(name + ":" + updatedIndex);
+        return cells == null ? Collections.emptySet() : cells;
     }
 
     private HashMap<String, Boolean> isNewEntity = null;
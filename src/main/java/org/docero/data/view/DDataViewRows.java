@@ -6,6 +6,9 @@ import java.util.stream.Collectors;
 public class DDataViewRows {
     private final DDataView view;
     private final List<Map<String, Object>> map;
+    private HashMap<Object, Map<String, Object>> index;
+    private Object[] continuation;
+    private long total = -1;
 
     DDataViewRows(DDataView view, List<Map<String, Object>> map) {
         this.view = view;
@@ -34,17 +37,29 @@ public class DDataViewRows {
         }).collect(Collectors.toList());
     }
 
+    /**
+     * Index of rows by key, built on first keyed access and updated by addRow().
+     * Rows added to list returned by toList() are not indexed.
+     */
+    private HashMap<Object, Map<String, Object>> index() {
+        if (index == null) {
+            index = new HashMap<>(map.size() * 4 / 3 + 1);
+            for (Map<String, Object> row : map) index.putIfAbsent(row.get("dDataBeanKey_"), row);
+        }
+        return index;
+    }
+
     @SuppressWarnings("unused")
     public Set<Object> keySet() {
-        return map.stream()
-                .map(o -> o.get("dDataBeanKey_"))
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(index().keySet());
+    }
+
+    public boolean containsKey(Object key) {
+        return index().containsKey(key);
     }
 
     public DDataViewRow getRow(Object key) {
-        Map<String, Object> r = map.stream()
-                .filter(o -> Objects.equals(key, o.get("dDataBeanKey_")))
-                .findAny().orElse(null);
+        Map<String, Object> r = index().get(key);
         return r == null ? null : new DDataViewRow(view, r);
     }
 
@@ -58,10 +73,51 @@ public class DDataViewRows {
         // мы предполагаем что для корневой сущности ID может быть загружен из таблицы, явно зададим что он новый
         buildedRow.put("dDataAppendRowInTable_", "yes");
         map.add(buildedRow);
+        if (index != null) index.put(buildedRow.get("dDataBeanKey_"), buildedRow);
         return new DDataViewRow(view, buildedRow);
     }
 
+    /**
+     * Remove row added by addRow(), when filling of new row fails.
+     */
+    void removeRow(DDataViewRow row) {
+        Object key = row.key();
+        for (int i = map.size() - 1; i >= 0; i--)
+            if (Objects.equals(map.get(i).get("dDataBeanKey_"), key)) {
+                map.remove(i);
+                break;
+            }
+        if (index != null) index.remove(key);
+    }
+
     public int size() {
         return map.size();
     }
+
+    /**
+     * Values of sort columns and key of last row, used for select next page
+     * by {@link DDataView#selectAfter(Object[], int)}.
+     *
+     * @return continuation of page or null if page is empty or not selected by selectAfter
+     */
+    public Object[] continuation() {
+        return continuation;
+    }
+
+    void setContinuation(Object[] continuation) {
+        this.continuation = continuation;
+    }
+
+    /**
+     * Count of all rows in view for applied filter.
+     *
+     * @return count of rows or -1 if rows are not selected by selectWithTotal
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    void setTotal(long total) {
+        this.total = total;
+    }
 }
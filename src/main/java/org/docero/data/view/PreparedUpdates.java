@@ -2,8 +2,10 @@ package org.docero.data.view;
 
 import org.docero.data.utils.DDataAttribute;
 import org.docero.data.utils.DDataException;
+import org.docero.data.utils.DDataExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.Closeable;
 import java.io.InputStream;
@@ -14,6 +16,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SuppressWarnings({"SqlDialectInspection", "SqlNoDataSourceInspection"})
 class PreparedUpdates implements Closeable {
@@ -31,7 +34,14 @@ class PreparedUpdates implements Closeable {
     private final Connection connection;
     private final Map<String, PreparedMap> mappings;
     private final List<DDataAttribute> unModified;
-    private final List<PreparedStatement> psl = new ArrayList<>();
+    private final Map<BitSet, Batch> updateBatches = new LinkedHashMap<>();
+    private final Map<BitSet, VersionBatch> versionBatches = new LinkedHashMap<>();
+    /**
+     * new versions written by batches, and beans failed to write new version, by ids of bean
+     */
+    private final Map<List<Object>, java.util.Date> versions = new HashMap<>();
+    private final Set<List<Object>> failedVersions = new HashSet<>();
+    private Batch insertBatch;
     boolean one2Many;
 
     PreparedUpdates(DDataView dDataView, AbstractDataView.TableEntity entity, String entityPropertyPath, Connection connection) throws DDataException, SQLException {
@@ -73,178 +83,76 @@ class PreparedUpdates implements Closeable {
     }
 
     void fillUpdate(DDataViewRow row, Integer updatedIndex, java.util.Date dateNow) throws SQLException {
-        PreparedStatement ps = prepareUpdate();
+        // only props modified in row are written, statements are grouped by set of modified props
+        Set<String> modified = row.modifiedCells(updatedIndex, entity.name);
+        BitSet signature = new BitSet(props.size());
+        for (int i = 0; i < props.size(); i++)
+            if (modified.contains(props.get(i).name)) signature.set(i);
+        if (signature.isEmpty() && mappings.isEmpty()) return;
+        List<AbstractDataView.TableCell> changed = signature.stream()
+                .mapToObj(props::get).collect(Collectors.toList());
+
         if (entity.versionFrom != null) { //versional bean
-            int pIdx = 1;
-            if (entity.versionTo != null) {
-                //UPDATE some SET versionTo=? WHERE id...=? AND version=?;
-                fillStatement(ps, pIdx++, entity.versionTo, dateNow);
-                for (DDataAttribute id : ids)
-                    fillStatement(ps, pIdx++, id,
-                            row.getColumnValue(updatedIndex,
-                                    propertyPath(id.getPropertyName())));
-                fillStatement(ps, pIdx++, entity.versionFrom,
-                        row.getColumnValue(updatedIndex,
-                                propertyPath(entity.versionFrom.getPropertyName())));
-            }
-            //INSERT INTO some (<columns>) SELECT <columns without updated>, ?..., version
-            for (AbstractDataView.TableCell prop : props)
-                fillStatement(ps, pIdx++, prop.attribute,
-                        row.getColumnValue(updatedIndex, prop.name));
-            for (PreparedMap m : mappings.values()) {
-                fillStatement(ps, pIdx++, m.to.attribute,
-                        row.getColumnValue(m.fromCollection ? 0 : updatedIndex, m.from.name));
-            }
-            fillStatement(ps, pIdx++, entity.versionFrom, dateNow);
-            //FROM some WHERE id...=? AND version=?
-            for (DDataAttribute id : ids)
-                fillStatement(ps, pIdx++, id,
-                        row.getColumnValue(updatedIndex,
-                                propertyPath(id.getPropertyName())));
-            fillStatement(ps, pIdx, entity.versionFrom,
-                    row.getColumnValue(updatedIndex,
-                            propertyPath(entity.versionFrom.getPropertyName())));
-
-            /*if (LOG.isTraceEnabled()) {
-                LOG.trace(ps.toString());
-                LOG.trace("Parameters: " + (entity.versionTo != null ? (
-                                "NOW(?)," +
-                                        ids.stream().map(id ->
-                                                row.getColumnValue(updatedIndex,
-                                                        propertyPath(id.getPropertyName()))
-                                                        .toString()
-                                        ).collect(Collectors.joining(",")) + "," +
-                                        row.getColumnValue(updatedIndex,
-                                                propertyPath(entity.versionFrom.getPropertyName())) +
-                                        ","
-                        ) :
-                                "") +
-                                props.stream()
-                                        .map(prop -> row.getColumnValue(updatedIndex, prop.name))
-                                        .map(val -> val == null ? "NULL" : val.toString())
-                                        .collect(Collectors.joining(",")) +
-                                (mappings.isEmpty() ? "" : "," +
-                                        mappings.values().stream()
-                                                .map(m -> row.getColumnValue(
-                                                        m.fromCollection ? 0 : updatedIndex, m.from.name))
-                                                .map(val -> val == null ? "NULL" : val.toString())
-                                                .collect(Collectors.joining(","))
-                                ) +
-                                ",NOW(?)," +
-                                ids.stream().map(id ->
-                                        row.getColumnValue(updatedIndex,
-                                                propertyPath(id.getPropertyName())))
-                                        .map(val -> val == null ? "NULL" : val.toString())
-                                        .collect(Collectors.joining(",")) + "," +
-                                row.getColumnValue(updatedIndex,
-                                        propertyPath(entity.versionFrom.getPropertyName()))
-                );
-            }*/
-        } else {
-            int pIdx = 1;
-            for (AbstractDataView.TableCell prop : props)
-                fillStatement(ps, pIdx++, prop.attribute,
-                        row.getColumnValue(updatedIndex, prop.name));
-            for (PreparedMap m : mappings.values()) {
-                fillStatement(ps, pIdx++, m.to.attribute,
-                        row.getColumnValue(m.fromCollection ? 0 : updatedIndex, m.from.name));
-            }
-            for (DDataAttribute id : ids)
-                fillStatement(ps, pIdx++, id,
-                        row.getColumnValue(updatedIndex,
-                                propertyPath(id.getPropertyName())));
-            /*if (LOG.isTraceEnabled()) {
-                LOG.trace(ps.toString());
-                LOG.trace("Parameters: " +
-                        props.stream().map(prop -> row.getColumnValue(updatedIndex, prop.name))
-                                .map(val -> val == null ? "NULL" : val.toString())
-                                .collect(Collectors.joining(",")) +
-                        (mappings.isEmpty() ? "" : "," +
-                                mappings.values().stream()
-                                        .map(m -> row.getColumnValue(
-                                                m.fromCollection ? 0 : updatedIndex, m.from.name))
-                                        .map(val -> val == null ? "NULL" : val.toString())
-                                        .collect(Collectors.joining(","))
-                        ) + "," +
-                        ids.stream().map(id ->
-                                row.getColumnValue(updatedIndex, propertyPath(id.getPropertyName())))
-                                .map(val -> val == null ? "NULL" : val.toString())
-                                .collect(Collectors.joining(","))
-                );
-            }*/
+            VersionBatch versionBatch = versionBatches.get(signature);
+            if (versionBatch == null)
+                versionBatches.put(signature, versionBatch = new VersionBatch(changed));
+            versionBatch.add(row, updatedIndex, dateNow);
+            return;
+        }
+
+        Batch updateBatch = updateBatches.get(signature);
+        if (updateBatch == null)
+            updateBatches.put(signature, updateBatch = new Batch(prepareUpdate(changed)));
+        PreparedStatement ps = updateBatch.ps;
+        int pIdx = 1;
+        for (AbstractDataView.TableCell prop : changed)
+            fillStatement(ps, pIdx++, prop.attribute,
+                    row.getColumnValue(updatedIndex, prop.name));
+        for (PreparedMap m : mappings.values()) {
+            fillStatement(ps, pIdx++, m.to.attribute,
+                    row.getColumnValue(m.fromCollection ? 0 : updatedIndex, m.from.name));
         }
-        psl.add(ps);
+        for (DDataAttribute id : ids)
+            fillStatement(ps, pIdx++, id,
+                    row.getColumnValue(updatedIndex,
+                            propertyPath(id.getPropertyName())));
+        /*if (LOG.isTraceEnabled()) {
+            LOG.trace(ps.toString());
+            LOG.trace("Parameters: " +
+                    props.stream().map(prop -> row.getColumnValue(updatedIndex, prop.name))
+                            .map(val -> val == null ? "NULL" : val.toString())
+                            .collect(Collectors.joining(",")) +
+                    (mappings.isEmpty() ? "" : "," +
+                            mappings.values().stream()
+                                    .map(m -> row.getColumnValue(
+                                            m.fromCollection ? 0 : updatedIndex, m.from.name))
+                                    .map(val -> val == null ? "NULL" : val.toString())
+                                    .collect(Collectors.joining(","))
+                    ) + "," +
+                    ids.stream().map(id ->
+                            row.getColumnValue(updatedIndex, propertyPath(id.getPropertyName())))
+                            .map(val -> val == null ? "NULL" : val.toString())
+                            .collect(Collectors.joining(","))
+            );
+        }*/
+        updateBatch.add(row, updatedIndex);
     }
 
     /**
      * Prepare statement
+     *
+     * @param changed props modified in rows of statement
      */
-    private PreparedStatement prepareUpdate() throws SQLException {
-        PreparedStatement ps;
-        if (entity.versionFrom != null) {
-            String valuesExceptModified = unModified.stream()
-                    .filter(c -> entity.versionTo == null || !entity.versionTo.getColumnName().equals(c.getColumnName()))
-                    .map(DDataAttribute::getColumnName)
-                    .map(s -> "\"" + s + "\"")
-                    .collect(Collectors.joining(","));
-            if (valuesExceptModified.length() > 0) valuesExceptModified += ",";
-
-            String sql = (entity.versionTo != null ?
-                    "UPDATE " + entity.table + " SET \"" + entity.versionTo.getColumnName() +
-                            "\"=? WHERE " + ids.stream().map(p -> "\"" + p.getColumnName() + "\"=?")
-                            .collect(Collectors.joining(" AND ")) + " AND \"" +
-                            entity.versionFrom.getColumnName() + "\"=?; " :
-                    "") +
-                    "INSERT INTO " + entity.table + " (" +
-                    //all ids except version
-                    ids.stream().filter(a -> a != entity.versionFrom)
-                            .map(DDataAttribute::getColumnName)
-                            .map(s -> "\"" + s + "\"")
-                            .collect(Collectors.joining(",")) +
-                    "," +
-                    //all values except modified by view
-                    valuesExceptModified +
-                    //values modified by view
-                    props.stream()
-                            .map(c -> c.attribute.getColumnName())
-                            .map(s -> "\"" + s + "\"")
-                            .collect(Collectors.joining(",")) +
-                    (mappings.isEmpty() ? "" : "," +
-                            mappings.values().stream()
-                                    .map(m -> m.to.attribute.getColumnName())
-                                    .map(s -> "\"" + s + "\"")
-                                    .collect(Collectors.joining(","))) +
-                    ",\"" + entity.versionFrom.getColumnName() +
-                    "\") SELECT " +
-                    //all ids except version
-                    ids.stream().filter(a -> a != entity.versionFrom)
-                            .map(DDataAttribute::getColumnName)
-                            .map(s -> "\"" + s + "\"")
-                            .collect(Collectors.joining(",")) +
-                    "," +
-                    //all values except modified by view
-                    valuesExceptModified +
-                    //values modified by view
-                    parameters(props.size() + mappings.size()) +
-                    ",?" +//value of version
-                    " FROM " + entity.table +
-                    " WHERE " + ids.stream().map(p -> "\"" + p.getColumnName() + "\"=?")
-                    .collect(Collectors.joining(" AND ")) +
-                    " AND \"" + entity.versionFrom.getColumnName() + "\"=?";
-            ps = connection.prepareStatement(sql);
-        } else {
-            String sql = "UPDATE " + entity.table +
-                    " SET " + props.stream()
-                    .map(p -> "\"" + p.attribute.getColumnName() + "\"=?")
-                    .collect(Collectors.joining(",")) +
-                    (mappings.isEmpty() ? "" : "," + mappings.values().stream()
-                            .map(m -> "\"" + m.to.attribute.getColumnName() + "\"=?")
-                            .collect(Collectors.joining(","))) +
-                    " WHERE " + ids.stream().map(p -> "\"" + p.getColumnName() + "\"=?")
-                    .collect(Collectors.joining(" AND "));
-            ps = connection.prepareStatement(sql);
-        }
-        return ps;
+    private PreparedStatement prepareUpdate(List<AbstractDataView.TableCell> changed) throws SQLException {
+        String sql = "UPDATE " + entity.table +
+                " SET " + Stream.concat(
+                changed.stream().map(c -> c.attribute),
+                mappings.values().stream().map(m -> m.to.attribute))
+                .map(a -> "\"" + a.getColumnName() + "\"=?")
+                .collect(Collectors.joining(",")) +
+                " WHERE " + ids.stream().map(p -> "\"" + p.getColumnName() + "\"=?")
+                .collect(Collectors.joining(" AND "));
+        return connection.prepareStatement(sql);
     }
 
     private String propertyPath(String propertyName) {
@@ -359,7 +267,8 @@ class PreparedUpdates implements Closeable {
     }
 
     void fillInsert(DDataViewRow row, Integer updatedIndex, java.util.Date dateNow) throws SQLException {
-        PreparedStatement pi = prepareInsert();
+        if (insertBatch == null) insertBatch = new Batch(prepareInsert());
+        PreparedStatement pi = insertBatch.ps;
 
         int pIdx = 1;
         for (AbstractDataView.TableCell prop : props)
@@ -406,7 +315,7 @@ class PreparedUpdates implements Closeable {
                     (entity.versionFrom == null ? "" : ",NOW(?)")
             );
         }*/
-        psl.add(pi);
+        insertBatch.add(row, updatedIndex);
     }
 
     private PreparedStatement prepareInsert() throws SQLException {
@@ -442,24 +351,343 @@ class PreparedUpdates implements Closeable {
         return sb.toString();
     }
 
-    void execute() throws SQLException {
-        for (PreparedStatement ps : psl)
+    /**
+     * @return count of rows added to batches and not executed yet
+     */
+    int pending() {
+        return (insertBatch == null ? 0 : insertBatch.rows.size()) +
+                updateBatches.values().stream().mapToInt(b -> b.rows.size()).sum() +
+                versionBatches.values().stream().mapToInt(b -> b.rows.size()).sum();
+    }
+
+    /**
+     * Execute batches of filled statements. Rows failed in batch are passed to exception handler
+     * one by one, with index of updated bean in row.
+     *
+     * @param exceptionHandler handler of exceptions for failed rows
+     * @throws SQLException on JDBC exceptions not related to rows of batch
+     */
+    void execute(DDataExceptionHandler exceptionHandler) throws SQLException {
+        if (insertBatch != null) insertBatch.execute(exceptionHandler);
+        for (Batch updateBatch : updateBatches.values()) updateBatch.execute(exceptionHandler);
+        for (VersionBatch versionBatch : versionBatches.values()) versionBatch.execute(exceptionHandler);
+    }
+
+    public void close() {
+        List<Batch> batches = new ArrayList<>(updateBatches.values());
+        if (insertBatch != null) batches.add(insertBatch);
+        for (Batch batch : batches)
             try {
-                LOG.trace(ps.toString());
-                ps.execute();
-            } catch (SQLException e) {
-                LOG.warn("trouble in " + ps.toString());
-                throw e;
+                batch.ps.close();
+            } catch (Exception ignore) {
             }
     }
 
-    public void close() {
-        if (!psl.isEmpty())
-            for (PreparedStatement ps : psl)
+    /**
+     * Statement reused for all rows of one operation over entity, with rows added to its batch.
+     * Failed batch is rolled back with all its rows, and rows of other batches are still written.
+     */
+    private class Batch {
+        final PreparedStatement ps;
+        final List<DDataViewRow> rows = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+
+        private Batch(PreparedStatement ps) {
+            this.ps = ps;
+        }
+
+        void add(DDataViewRow row, Integer updatedIndex) throws SQLException {
+            ps.addBatch();
+            rows.add(row);
+            indexes.add(updatedIndex);
+        }
+
+        void execute(DDataExceptionHandler exceptionHandler) throws SQLException {
+            if (rows.isEmpty()) return;
+            LOG.trace(ps.toString() + " (batch of " + rows.size() + ")");
+            // пакет выполняется под savepoint или в своей транзакции, ошибка не прерывает всю транзакцию
+            Unit unit = new Unit();
+            try {
+                ps.executeBatch();
+                unit.commit();
+            } catch (BatchUpdateException e) {
+                LOG.warn("trouble in " + ps.toString());
+                unit.rollback();
+                int[] counts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                // driver may stop at first failed row, then rest of rows is not executed
+                for (int i = 0; i < rows.size(); i++)
+                    if (i >= counts.length || counts[i] == Statement.EXECUTE_FAILED)
+                        failed(exceptionHandler, i > counts.length ? "not executed after failure" : e.getMessage(),
+                                rows.get(i), indexes.get(i));
+                    else
+                        // without own transaction driver may roll back whole batch (PostgreSQL does) or not
+                        failed(exceptionHandler, unit.atomic() ? "rolled back with failed row of batch" :
+                                        "not confirmed after failure of batch in auto-commit mode",
+                                rows.get(i), indexes.get(i));
+            } finally {
                 try {
-                    ps.close();
-                } catch (Exception ignore) {
+                    unit.close();
+                } finally {
+                    ps.clearBatch();
+                    rows.clear();
+                    indexes.clear();
                 }
+            }
+        }
+    }
+
+    /**
+     * Statements of unit are written together or rolled back together: under savepoint in
+     * transaction, or in own transaction on connection in auto-commit mode. Connection held by
+     * Spring transaction synchronization is not switched from auto-commit, then statements
+     * of unit are not rolled back together.
+     */
+    private final class Unit {
+        private final Savepoint savepoint;
+        private final boolean local;
+
+        private Unit() throws SQLException {
+            boolean autoCommit = connection.getAutoCommit();
+            local = autoCommit && !TransactionSynchronizationManager.isSynchronizationActive();
+            savepoint = autoCommit ? null : connection.setSavepoint();
+            if (local) connection.setAutoCommit(false);
+        }
+
+        /**
+         * @return true if failed statements of unit are rolled back together
+         */
+        boolean atomic() {
+            return savepoint != null || local;
+        }
+
+        void commit() throws SQLException {
+            if (savepoint != null) connection.releaseSavepoint(savepoint);
+            else if (local) connection.commit();
+        }
+
+        void rollback() throws SQLException {
+            if (savepoint != null) connection.rollback(savepoint);
+            else if (local) connection.rollback();
+        }
+
+        void close() throws SQLException {
+            if (local) connection.setAutoCommit(true);
+        }
+    }
+
+    private void failed(DDataExceptionHandler exceptionHandler, String message, DDataViewRow row, Integer index) {
+        exceptionHandler.handle(new DDataException("JDBC: " + message +
+                " (" + entityPropertyPath + "[" + index + "] of row " + row.key() + ")"));
+    }
+
+    /**
+     * New versions of versional bean written by set of rows at once: old versions are closed
+     * by one UPDATE ... WHERE (ids, version) IN (...), and new versions are inserted by one
+     * INSERT ... SELECT from old versions joined with VALUES list of modified props.
+     * Both statements of chunk are executed as one {@link Unit}, so failed chunk leaves
+     * old versions open. Bean written by several rows gets next version in next chunk.
+     */
+    private class VersionBatch {
+        private static final int MAX_PARAMETERS = 30000;
+
+        final List<AbstractDataView.TableCell> changed;
+        /**
+         * attributes of values in VALUES list: ids, old version, modified props, mappings, new version
+         */
+        final List<DDataAttribute> tuple = new ArrayList<>();
+        final List<DDataAttribute> copied;
+        final List<DDataViewRow> rows = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+        final List<Object[]> values = new ArrayList<>();
+        /**
+         * new version of all rows in batch, old versions are closed by it
+         */
+        java.util.Date dateNow;
+
+        private VersionBatch(List<AbstractDataView.TableCell> changed) {
+            this.changed = changed;
+            tuple.addAll(ids);
+            tuple.add(entity.versionFrom);
+            changed.forEach(c -> tuple.add(c.attribute));
+            mappings.values().forEach(m -> tuple.add(m.to.attribute));
+            tuple.add(entity.versionFrom);
+            copied = Stream.concat(
+                    unModified.stream(),
+                    props.stream().filter(c -> !changed.contains(c)).map(c -> c.attribute))
+                    .filter(c -> entity.versionTo == null || !entity.versionTo.getColumnName().equals(c.getColumnName()))
+                    .collect(Collectors.toList());
+        }
+
+        void add(DDataViewRow row, Integer updatedIndex, java.util.Date dateNow) throws SQLException {
+            Object[] v = new Object[tuple.size()];
+            int i = 0;
+            for (DDataAttribute id : ids)
+                v[i++] = row.getColumnValue(updatedIndex, propertyPath(id.getPropertyName()));
+            v[i++] = row.getColumnValue(updatedIndex, propertyPath(entity.versionFrom.getPropertyName()));
+            for (AbstractDataView.TableCell prop : changed)
+                v[i++] = row.getColumnValue(updatedIndex, prop.name);
+            for (PreparedMap m : mappings.values())
+                v[i++] = row.getColumnValue(m.fromCollection ? 0 : updatedIndex, m.from.name);
+            if (rows.isEmpty()) this.dateNow = dateNow;
+            v[i] = this.dateNow;
+            for (int j = 0; j < v.length; j++)
+                if (v[j] == null && !tuple.get(j).isNullable())
+                    throw new SQLException("Column '" + tuple.get(j).getColumnName() + "' don't allows NULL");
+            rows.add(row);
+            indexes.add(updatedIndex);
+            values.add(v);
+        }
+
+        void execute(DDataExceptionHandler exceptionHandler) throws SQLException {
+            int chunk = Math.max(MAX_PARAMETERS / tuple.size(), 1);
+            int keySize = ids.size();
+            try {
+                for (int from = 0, to; from < rows.size(); from = to) {
+                    // ключ бина встречается в части один раз, иначе версии совпадут по (id, version)
+                    Set<List<Object>> keys = new HashSet<>();
+                    java.util.Date version = dateNow;
+                    for (to = from; to < rows.size() && to - from < chunk; to++) {
+                        List<Object> key = Arrays.asList(Arrays.copyOf(values.get(to), keySize));
+                        if (!keys.add(key)) break;
+                        java.util.Date written = versions.get(key);
+                        if (written != null && !version.after(written))
+                            version = new java.util.Date(written.getTime() + 1);
+                    }
+                    List<Integer> skipped = new ArrayList<>();
+                    for (int r = from; r < to; r++) {
+                        Object[] v = values.get(r);
+                        List<Object> key = Arrays.asList(Arrays.copyOf(v, keySize));
+                        if (failedVersions.contains(key)) skipped.add(r);
+                        // old version of bean written by previous chunk is its new version
+                        java.util.Date written = versions.get(key);
+                        if (written != null) v[keySize] = written;
+                        v[v.length - 1] = version;
+                    }
+                    if (!skipped.isEmpty()) {
+                        for (int r : skipped)
+                            failed(exceptionHandler, "previous version of bean is not written",
+                                    rows.get(r), indexes.get(r));
+                        if (skipped.size() == to - from) continue;
+                        for (int i = skipped.size() - 1; i >= 0; i--) {
+                            int r = skipped.get(i);
+                            rows.remove(r);
+                            indexes.remove(r);
+                            values.remove(r);
+                        }
+                        to -= skipped.size();
+                    }
+                    writeChunk(from, to, version, exceptionHandler);
+                }
+            } finally {
+                rows.clear();
+                indexes.clear();
+                values.clear();
+            }
+        }
+
+        private void writeChunk(
+                int from, int to, java.util.Date version, DDataExceptionHandler exceptionHandler
+        ) throws SQLException {
+            // закрытие и вставка версий выполняются вместе или откатываются вместе
+            Unit unit = new Unit();
+            try {
+                // new versions are inserted first, so if closing is not rolled back
+                // with failed insert, old versions are still open
+                int inserted = insertVersions(from, to);
+                if (inserted != to - from)
+                    LOG.warn("inserted " + inserted + " versions of " + (to - from) +
+                            " in " + entity.table + ", some versions are modified concurrently");
+                if (entity.versionTo != null) closeVersions(from, to, version);
+                unit.commit();
+                for (int r = from; r < to; r++)
+                    versions.put(Arrays.asList(Arrays.copyOf(values.get(r), ids.size())), version);
+            } catch (SQLException e) {
+                LOG.warn("trouble in versions of " + entity.table);
+                unit.rollback();
+                for (int r = from; r < to; r++) {
+                    failedVersions.add(Arrays.asList(Arrays.copyOf(values.get(r), ids.size())));
+                    failed(exceptionHandler, e.getMessage(), rows.get(r), indexes.get(r));
+                }
+            } finally {
+                unit.close();
+            }
+        }
+
+        //UPDATE some SET versionTo=? WHERE (id...,version) IN ((?...,?),...)
+        private void closeVersions(int from, int to, java.util.Date version) throws SQLException {
+            int keySize = ids.size() + 1;
+            String sql = "UPDATE " + entity.table + " SET \"" + entity.versionTo.getColumnName() + "\"=" +
+                    placeholder(entity.versionTo) + " WHERE (" +
+                    tuple.subList(0, keySize).stream()
+                            .map(a -> "\"" + a.getColumnName() + "\"")
+                            .collect(Collectors.joining(",")) +
+                    ") IN (" + rowsOfPlaceholders(0, keySize, to - from) + ")";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int pIdx = 1;
+                fillStatement(ps, pIdx++, entity.versionTo, version);
+                for (int r = from; r < to; r++)
+                    for (int i = 0; i < keySize; i++)
+                        fillStatement(ps, pIdx++, tuple.get(i), values.get(r)[i]);
+                LOG.trace(sql);
+                ps.executeUpdate();
+            }
+        }
+
+        //INSERT INTO some (<columns>) SELECT t.<columns without updated>, v.<updated>..., v.version
+        //  FROM some t JOIN (VALUES (?...),...) v ON t.id...=v.id... AND t.version=v.version
+        private int insertVersions(int from, int to) throws SQLException {
+            int keySize = ids.size() + 1;
+            List<String> aliases = new ArrayList<>();
+            for (int i = 0; i < tuple.size(); i++) aliases.add("\"v" + i + "\"");
+            StringBuilder on = new StringBuilder();
+            for (int i = 0; i < keySize; i++)
+                on.append(i == 0 ? "" : " AND ").append("t.\"").append(tuple.get(i).getColumnName())
+                        .append("\"=v.").append(aliases.get(i));
+            String sql = "INSERT INTO " + entity.table + " (" +
+                    Stream.concat(ids.stream(), copied.stream())
+                            .map(a -> "\"" + a.getColumnName() + "\"")
+                            .collect(Collectors.joining(",")) + "," +
+                    tuple.subList(keySize, tuple.size()).stream()
+                            .map(a -> "\"" + a.getColumnName() + "\"")
+                            .collect(Collectors.joining(",")) +
+                    ") SELECT " +
+                    Stream.concat(ids.stream(), copied.stream())
+                            .map(a -> "t.\"" + a.getColumnName() + "\"")
+                            .collect(Collectors.joining(",")) + "," +
+                    aliases.subList(keySize, aliases.size()).stream()
+                            .map(a -> "v." + a)
+                            .collect(Collectors.joining(",")) +
+                    " FROM " + entity.table + " t JOIN (VALUES " +
+                    rowsOfPlaceholders(0, tuple.size(), to - from) + ") AS v(" +
+                    String.join(",", aliases) + ") ON " + on;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int pIdx = 1;
+                for (int r = from; r < to; r++)
+                    for (int i = 0; i < tuple.size(); i++)
+                        fillStatement(ps, pIdx++, tuple.get(i), values.get(r)[i]);
+                LOG.trace(sql);
+                return ps.executeUpdate();
+            }
+        }
+
+        private String rowsOfPlaceholders(int from, int to, int count) {
+            String row = "(" + tuple.subList(from, to).stream()
+                    .map(PreparedUpdates::placeholder)
+                    .collect(Collectors.joining(",")) + ")";
+            StringBuilder sb = new StringBuilder(row);
+            for (int i = 1; i < count; i++) sb.append(",").append(row);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Temporal values are bound without type by some drivers, so they are casted
+     * where type can't be inferred from column (in VALUES list).
+     */
+    private static String placeholder(DDataAttribute attribute) {
+        String jdbcType = attribute.getJdbcType();
+        return "DATE".equals(jdbcType) || "TIME".equals(jdbcType) || "TIMESTAMP".equals(jdbcType) ?
+                "CAST(? AS " + jdbcType + ")" : "?";
     }
 
     /**
@@ -478,9 +706,9 @@ class PreparedUpdates implements Closeable {
                     Object pVal = row.getColumnValue(parentIndex, pm.getKey().name);
                     Object eVal = row.getColumnValue(updatedIndex, entityCell.name);
                     if (pVal == null)// && !pm.getKey().attribute.isPrimaryKey())
-                        row.setColumnValue(eVal, parentIndex, pm.getKey().name, false);
+                        row.setMappedColumnValue(eVal, parentIndex, pm.getKey().name);
                     else if (eVal == null)// && !entityCell.attribute.isPrimaryKey())
-                        row.setColumnValue(pVal, updatedIndex, entityCell.name, false);
+                        row.setMappedColumnValue(pVal, updatedIndex, entityCell.name);
                 }
             }
 
@@ -491,9 +719,9 @@ class PreparedUpdates implements Closeable {
                 Object eVal = row.getColumnValue(updatedIndex, entityCell.name);
                 Object cVal = row.getColumnValue(updatedIndex, childCell.name);
                 if (cVal == null)// && !childCell.attribute.isPrimaryKey())
-                    row.setColumnValue(eVal, updatedIndex, childCell.name, false);
+                    row.setMappedColumnValue(eVal, updatedIndex, childCell.name);
                 else if (eVal == null)// && !entityCell.attribute.isPrimaryKey())
-                    row.setColumnValue(cVal, updatedIndex, entityCell.name, false);
+                    row.setMappedColumnValue(cVal, updatedIndex, entityCell.name);
             }
         }
     }
@@ -0,0 +1,199 @@
+package org.docero.data.view;
+
+import org.docero.data.utils.DDataTypes;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Values used by SQL of view. Value is written in SQL text as #{n} marker and
+ * replaced by JDBC placeholder when statement is prepared, so text of SQL depends
+ * only on view shape and RDBMS may reuse prepared plan for it.
+ */
+class ViewParameters {
+    private static final Pattern MARKER = Pattern.compile("#\\{(\\d+)}");
+
+    private final List<String> types = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    /**
+     * Register value of parameter.
+     *
+     * @param jdbcType JDBC type of column compared with value
+     * @param value    value of parameter
+     * @return SQL expression used in place of value
+     */
+    String add(String jdbcType, Object value) {
+        String marker = "#{" + values.size() + "}";
+        types.add(jdbcType);
+        values.add(value);
+        return isCasted(jdbcType) ? "CAST(" + marker + " AS " + jdbcType + ")" : marker;
+    }
+
+    private static boolean isCasted(String jdbcType) {
+        return "DATE".equals(jdbcType) || "TIME".equals(jdbcType) || "TIMESTAMP".equals(jdbcType);
+    }
+
+    /**
+     * @return copy of parameters, used by statements executed in other threads
+     */
+    ViewParameters copy() {
+        ViewParameters c = new ViewParameters();
+        c.types.addAll(types);
+        c.values.addAll(values);
+        return c;
+    }
+
+    void clear() {
+        types.clear();
+        values.clear();
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Remove parameters registered after given count, used for parameters
+     * of statements executed repeatedly with different values.
+     *
+     * @param size count of parameters to keep
+     */
+    void truncate(int size) {
+        types.subList(size, types.size()).clear();
+        values.subList(size, values.size()).clear();
+    }
+
+    /**
+     * Prepare statement for SQL with markers and bind values of parameters.
+     *
+     * @param connection JDBC connection
+     * @param sql        SQL with markers of parameters
+     * @return prepared statement with bound parameters
+     * @throws SQLException on JDBC exceptions
+     */
+    PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        List<Integer> bound = new ArrayList<>();
+        PreparedStatement ps = connection.prepareStatement(toJdbc(sql, bound));
+        try {
+            for (int i = 0; i < bound.size(); i++)
+                bind(ps, i + 1, bound.get(i));
+        } catch (SQLException | RuntimeException e) {
+            ps.close();
+            throw e;
+        }
+        return ps;
+    }
+
+    /**
+     * Replace markers by JDBC placeholders.
+     *
+     * @param sql   SQL with markers of parameters
+     * @param bound list filled by indexes of parameters in order of placeholders
+     * @return SQL for JDBC statement
+     */
+    String toJdbc(String sql, List<Integer> bound) {
+        Matcher m = MARKER.matcher(sql);
+        StringBuffer sb = new StringBuffer(sql.length());
+        while (m.find()) {
+            if (bound != null) bound.add(Integer.valueOf(m.group(1)));
+            m.appendReplacement(sb, "?");
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Replace markers by literal values, used only where SQL text is returned to user.
+     *
+     * @param sql SQL with markers of parameters
+     * @return SQL with values
+     */
+    String toLiteral(String sql) {
+        Matcher m = MARKER.matcher(sql);
+        StringBuffer sb = new StringBuffer(sql.length());
+        while (m.find()) {
+            int i = Integer.parseInt(m.group(1));
+            Object v = values.get(i);
+            String jdbcType = isCasted(types.get(i)) ? "VARCHAR" : types.get(i);
+            String literal = v == null ? "NULL" : DDataTypes.maskedValue(jdbcType, v.toString());
+            m.appendReplacement(sb, Matcher.quoteReplacement(literal));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Values of parameters in order of placeholders, used for logging.
+     *
+     * @param sql SQL with markers of parameters
+     * @return string representation of values
+     */
+    String toString(String sql) {
+        List<Integer> bound = new ArrayList<>();
+        toJdbc(sql, bound);
+        StringBuilder sb = new StringBuilder();
+        for (Integer i : bound) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(values.get(i));
+        }
+        return sb.toString();
+    }
+
+    private void bind(PreparedStatement ps, int pIdx, int i) throws SQLException {
+        String jdbcType = types.get(i);
+        Object v = values.get(i);
+        if (v == null) {
+            ps.setNull(pIdx, Types.NULL);
+            return;
+        }
+        String s = v.toString();
+        if (jdbcType == null) {
+            ps.setObject(pIdx, v);
+        } else switch (jdbcType) {
+            case "BOOLEAN":
+                ps.setBoolean(pIdx, v instanceof Boolean ? (Boolean) v : Boolean.parseBoolean(s));
+                break;
+            case "SMALLINT":
+                ps.setShort(pIdx, v instanceof Number ? ((Number) v).shortValue() : Short.parseShort(s.trim()));
+                break;
+            case "INTEGER":
+                ps.setInt(pIdx, v instanceof Number ? ((Number) v).intValue() : Integer.parseInt(s.trim()));
+                break;
+            case "BIGINT":
+                ps.setLong(pIdx, v instanceof Number ? ((Number) v).longValue() : Long.parseLong(s.trim()));
+                break;
+            case "REAL":
+                ps.setFloat(pIdx, v instanceof Number ? ((Number) v).floatValue() : Float.parseFloat(s.trim()));
+                break;
+            case "DOUBLE":
+                ps.setDouble(pIdx, v instanceof Number ? ((Number) v).doubleValue() : Double.parseDouble(s.trim()));
+                break;
+            case "NUMERIC":
+                ps.setBigDecimal(pIdx, v instanceof BigDecimal ? (BigDecimal) v : new BigDecimal(s.trim()));
+                break;
+            case "DATE":
+            case "TIME":
+            case "TIMESTAMP":
+            case "CHAR":
+            case "VARCHAR":
+            case "LONGVARCHAR":
+            case "NVARCHAR":
+            case "CLOB":
+                ps.setString(pIdx, s);
+                break;
+            default:
+                if (v instanceof String)
+                    ps.setObject(pIdx, v, Types.OTHER);
+                else
+                    ps.setObject(pIdx, v);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.docero.data.beans;
+
+import org.docero.data.DDataBean;
+import org.docero.data.DDataProperty;
+import org.docero.data.DictionaryType;
+
+import java.io.Serializable;
+
+@DDataBean(table = "deltadict", schema = "ddata", dictionary = DictionaryType.SMALL)
+public interface DeltaDict extends Serializable {
+    @DDataProperty(value = "id", id = true)
+    int getId();
+    void setId(int id);
+
+    @DDataProperty("name")
+    String getName();
+    void setName(String name);
+
+    @DDataProperty(value = "row_version", modified = true)
+    Long getRowVersion();
+    void setRowVersion(Long v);
+}
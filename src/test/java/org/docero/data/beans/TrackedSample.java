@@ -0,0 +1,7 @@
+package org.docero.data.beans;
+
+import org.docero.data.DDataBean;
+
+@DDataBean(table = "sample", schema = "ddata")
+public interface TrackedSample extends SampleTable {
+}
@@ -1,7 +1,9 @@
 package org.docero.data.tests;
 
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 import org.docero.data.*;
 import org.docero.data.beans.*;
 import org.docero.data.repositories.*;
@@ -11,6 +13,7 @@ import org.docero.data.view.*;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,18 +22,28 @@ import org.springframework.test.annotation.Commit;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import javax.xml.bind.*;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -64,6 +77,8 @@ public class DDataTest {
     @Autowired
     private SampleBatchOps sampleBatchOps;
     @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
     private MultiTypesRepository multiTypesRepository;
     @Autowired
     private DDataViewBuilder viewBuilder;
@@ -176,6 +191,17 @@ public class DDataTest {
                     "INSERT INTO ddata.\"lgdict\" (id,name) VALUES (1,'БС знач 1');" +
                     "INSERT INTO ddata.\"lgdict\" (id,name) VALUES (2,'БС знач 2');" +
                     "" +
+                    "DROP TABLE IF EXISTS ddata.\"deltadict\";" +
+                    "CREATE TABLE ddata.\"deltadict\" (\n" +
+                    "  id INT NOT NULL," +
+                    "  name VARCHAR,\n" +
+                    "  row_version BIGINT,\n" +
+                    "  CONSTRAINT deltadict_pk PRIMARY KEY (id)\n" +
+                    ");" +
+                    "INSERT INTO ddata.\"deltadict\" (id,name,row_version) VALUES (1,'d1',1);" +
+                    "INSERT INTO ddata.\"deltadict\" (id,name,row_version) VALUES (2,'d2',1);" +
+                    "INSERT INTO ddata.\"deltadict\" (id,name,row_version) VALUES (3,'d3',1);" +
+                    "" +
                     "DROP TABLE IF EXISTS ddata.\"smgraf\";\n" +
                     "CREATE TABLE ddata.\"smgraf\" (\n" +
                     "  parent INT NOT NULL," +
@@ -198,6 +224,14 @@ public class DDataTest {
         }
     }
 
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement st = conn.prepareStatement(sql)) {
+                st.execute();
+            }
+        }
+    }
+
     @Test
     public void sqlTest() {
         DSQL sql = new DSQL();
@@ -484,6 +518,377 @@ public class DDataTest {
     }
 
 
+    @Test
+    @Transactional
+    public void boundParametersViewTest() throws Exception {
+        setUp();
+
+        DDataView view = viewBuilder.build(Sample_WB_.class,
+                new DDataFilter(Sample_WB_.ID), new DDataFilter(Sample_WB_.STR_PARAMETER));
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER, DDataFilterOperator.EQUALS, "s1' OR '1'='1"));
+        }});
+        // value is bound to statement, so it is compared as is
+        assertEquals(0, view.select(0, 100).size());
+        assertEquals(0, view.count());
+        // but is written as masked literal in SQL returned to user
+        assertTrue(view.firstLevelSelect(0, 100).contains("'s1'' OR ''1''=''1'"));
+
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER, DDataFilterOperator.EQUALS, "s2"));
+        }});
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(1, rows.size());
+        assertEquals(2, rows.getRow(0).getColumnValue(0, Sample_WB_.ID));
+
+        // temporal values are bound as strings casted to type of column
+        DDataView hist = viewBuilder.build(HistSample_WB_.class,
+                new DDataFilter(HistSample_WB_.ID), new DDataFilter(HistSample_WB_.DATE_FROM));
+        hist.setFilter(new DDataFilter() {{
+            add(new DDataFilter(HistSample_WB_.DATE_FROM, DDataFilterOperator.GREATE,
+                    LocalDateTime.of(2017, 1, 1, 12, 0)));
+        }});
+        assertTrue(hist.firstLevelSelect(0, 100).contains("CAST('2017-01-01T12:00' AS TIMESTAMP)"));
+        rows = hist.select(0, 100);
+        assertEquals(2, rows.size());
+        assertEquals(2, hist.count());
+        for (int i = 0; i < rows.size(); i++)
+            assertEquals(LocalDateTime.of(2017, 1, 2, 0, 0),
+                    rows.getRow(i).getColumnValue(0, HistSample_WB_.DATE_FROM));
+    }
+
+    @Test
+    @Transactional
+    public void streamViewTest() throws Exception {
+        setUp();
+
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID));
+            add(new DDataFilter(Sample_WB_.LIST_PARAMETER) {{
+                add(new DDataFilter(Inner_WB_.TEXT));
+            }});
+        }});
+        // every chunk of one row selects own collections
+        Map<Object, Set<Object>> texts = new HashMap<>();
+        view.stream(1, row -> texts.put(row.getColumnValue(0, Sample_WB_.ID),
+                new HashSet<>(Arrays.asList(row.getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT)))));
+        assertEquals(2, texts.size());
+        assertEquals(new HashSet<>(Arrays.asList("i1", "i2")), texts.get(1));
+        assertEquals(Collections.singleton("i3"), texts.get(2));
+
+        // last chunk is not full
+        Map<Object, Set<Object>> chunked = new HashMap<>();
+        view.stream(row -> chunked.put(row.getColumnValue(0, Sample_WB_.ID),
+                new HashSet<>(Arrays.asList(row.getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT)))));
+        assertEquals(texts, chunked);
+
+        try {
+            view.stream(0, row -> fail());
+            fail("fetch size must be checked");
+        } catch (DDataException ignore) {
+        }
+    }
+
+    @Test
+    @Transactional
+    public void subSelectMergeViewTest() throws Exception {
+        setUp();
+        execute("INSERT INTO ddata.\"sample\" (id, s) VALUES (3,'s3');" +
+                "INSERT INTO ddata.\"inner\" (id, text, sample_id) VALUES (1004,'i4',2);");
+
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID));
+            add(new DDataFilter(Sample_WB_.LIST_PARAMETER) {{
+                add(new DDataFilter(Inner_WB_.ID));
+                add(new DDataFilter(Inner_WB_.TEXT));
+            }});
+        }});
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(3, rows.size());
+        // rows of sub-select are merged to own rows only
+        assertEquals(new HashSet<>(Arrays.asList(1001, 1002)), new HashSet<>(Arrays.asList(
+                rows.getRow((Object) 1).getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.ID))));
+        assertEquals(new HashSet<>(Arrays.asList("i3", "i4")), new HashSet<>(Arrays.asList(
+                rows.getRow((Object) 2).getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT))));
+        Object[] empty = rows.getRow((Object) 3).getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.ID);
+        assertTrue(empty == null || empty.length == 0 || (empty.length == 1 && empty[0] == null));
+    }
+
+    @Test
+    @Transactional
+    public void rowIndexViewTest() throws Exception {
+        setUp();
+
+        DDataView view = viewBuilder.build(Sample_WB_.class,
+                new DDataFilter(Sample_WB_.ID), new DDataFilter(Sample_WB_.STR_PARAMETER));
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), rows.keySet());
+        assertTrue(rows.containsKey(2));
+        assertFalse(rows.containsKey(3));
+        assertEquals("s2", rows.getRow((Object) 2).getColumnValue(0, Sample_WB_.STR_PARAMETER));
+        assertNull(rows.getRow((Object) 3));
+
+        // index is kept by added rows
+        DDataViewRow added = rows.addRow();
+        added.setColumnValue("added", 0, Sample_WB_.STR_PARAMETER);
+        Object key = rows.toList().get(rows.size() - 1).get("dDataBeanKey_");
+        assertEquals(3, rows.keySet().size());
+        assertTrue(rows.containsKey(key));
+        assertEquals("added", rows.getRow(key).getColumnValue(0, Sample_WB_.STR_PARAMETER));
+    }
+
+    @Test
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public void rowLayoutViewTest() throws Exception {
+        setUp();
+
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID));
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER) {{
+                setMapName("name");
+            }});
+            add(new DDataFilter(Sample_WB_.INNER) {{
+                setMapName("main");
+                add(new DDataFilter(Inner_WB_.TEXT) {{
+                    setMapName("txt");
+                }});
+                add(new DDataFilter(Inner_WB_.SAMPLE) {{
+                    setMapName("owner");
+                    add(new DDataFilter(Sample_WB_.STR_PARAMETER) {{
+                        setMapName("name");
+                    }});
+                }});
+            }});
+        }});
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(2, rows.size());
+        for (Map<String, Object> row : rows.toList()) {
+            int id = (Integer) row.get("id");
+            // columns of inner beans are placed in maps of properties
+            assertEquals("s" + id, row.get("name"));
+            Map<String, Object> main = (Map<String, Object>) row.get("main");
+            assertEquals(id == 1 ? "i1" : "i3", main.get("txt"));
+            assertEquals("s" + id, ((Map<String, Object>) main.get("owner")).get("name"));
+        }
+        assertEquals("i3", rows.getRow((Object) 2).getColumnValue(0, "main.txt"));
+        assertEquals("s2", rows.getRow((Object) 2).getColumnValue(0, "main.owner.name"));
+    }
+
+    @Test
+    @Transactional
+    public void temporalFallbackViewTest() throws Exception {
+        setUp();
+
+        // driver without JDBC 4.2 getObject(int, Class) for java.time types
+        AtomicInteger unsupported = new AtomicInteger();
+        DataSource legacy = withoutTemporalObjects(dataSource, DataSource.class, unsupported);
+        SqlSessionFactory legacyFactory = new SqlSessionFactoryBuilder().build(
+                new org.apache.ibatis.session.Configuration(
+                        new Environment("legacy", new SpringManagedTransactionFactory(), legacy)));
+        DDataViewBuilder legacyBuilder = new DDataViewBuilder(legacyFactory, null);
+
+        DDataFilter[] columns = {
+                new DDataFilter(HistSample_WB_.ID),
+                new DDataFilter(HistSample_WB_.DATE_FROM)
+        };
+        DDataViewRows legacyRows = legacyBuilder.build(HistSample_WB_.class, columns).select(0, 100);
+        DDataViewRows rows = viewBuilder.build(HistSample_WB_.class, columns).select(0, 100);
+
+        assertTrue(unsupported.get() > 0);
+        assertTrue(rows.size() > 0);
+        assertEquals(rows.size(), legacyRows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object dateFrom = legacyRows.getRow(i).getColumnValue(0, HistSample_WB_.DATE_FROM);
+            assertTrue(dateFrom instanceof LocalDateTime);
+            assertEquals(rows.getRow(i).getColumnValue(0, HistSample_WB_.DATE_FROM), dateFrom);
+        }
+        // other data sources keep reading java.time values by driver
+        int failures = unsupported.get();
+        viewBuilder.build(HistSample_WB_.class, columns).select(0, 100);
+        assertEquals(failures, unsupported.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T withoutTemporalObjects(T target, Class<T> type, AtomicInteger unsupported) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+            if ("getObject".equals(method.getName()) && args != null && args.length == 2 && args[1] instanceof Class) {
+                unsupported.incrementAndGet();
+                throw new SQLFeatureNotSupportedException("getObject(int, Class)");
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection && type != Connection.class)
+                return withoutTemporalObjects((Connection) result, Connection.class, unsupported);
+            if (result instanceof PreparedStatement)
+                return withoutTemporalObjects((PreparedStatement) result, PreparedStatement.class, unsupported);
+            if (result instanceof ResultSet)
+                return withoutTemporalObjects((ResultSet) result, ResultSet.class, unsupported);
+            return result;
+        });
+    }
+
+    @Test
+    @Transactional
+    public void keysetViewTest() throws Exception {
+        setUp();
+        execute("INSERT INTO ddata.\"sample\" (id, s) VALUES (3,NULL);" +
+                "INSERT INTO ddata.\"sample\" (id, s) VALUES (4,'s1');");
+
+        // NULL values are last for ascending order, equal values are ordered by key
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID));
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER) {{
+                setSortAscending(true);
+            }});
+        }});
+        assertEquals(Arrays.asList(1, 4, 2, 3), keysetPages(view, 1));
+        assertEquals(Arrays.asList(1, 4, 2, 3), keysetPages(view, 3));
+
+        // and first for descending order
+        view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID));
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER) {{
+                setSortAscending(false);
+            }});
+        }});
+        assertEquals(Arrays.asList(3, 2, 1, 4), keysetPages(view, 1));
+        assertEquals(Arrays.asList(3, 2, 1, 4), keysetPages(view, 2));
+
+        try {
+            view.selectAfter(new Object[]{"s1"}, 1);
+            fail("continuation must match order of view");
+        } catch (DDataException ignore) {
+        }
+    }
+
+    private static List<Object> keysetPages(DDataView view, int limit) throws DDataException {
+        List<Object> ids = new ArrayList<>();
+        Object[] after = null;
+        DDataViewRows page;
+        do {
+            page = view.selectAfter(after, limit);
+            for (int i = 0; i < page.size(); i++)
+                ids.add(page.getRow(i).getColumnValue(0, Sample_WB_.ID));
+            after = page.continuation();
+        } while (page.size() == limit);
+        return ids;
+    }
+
+    @Test
+    @Transactional
+    public void cachedDefinitionViewTest() throws Exception {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+
+        DDataFilter text = new DDataFilter(Inner_WB_.TEXT);
+        DDataFilter list = new DDataFilter(Sample_WB_.LIST_PARAMETER);
+        list.add(text);
+        DDataView first = viewBuilder.build(Sample_WB_.class, new DDataFilter(Sample_WB_.ID), list);
+        assertEquals(2, first.select(0, 100).size());
+        // filters of first view are changed by caller after definition is cached
+        text.setMapName("changed");
+        list.add(new DDataFilter(Inner_WB_.SAMPLE_ID));
+
+        // the same columns use cached definition, but not filters of first view
+        DDataView second = viewBuilder.build(Sample_WB_.class, new DDataFilter(Sample_WB_.ID),
+                new DDataFilter(Sample_WB_.LIST_PARAMETER) {{
+                    add(new DDataFilter(Inner_WB_.TEXT));
+                }});
+        DDataViewRow row = second.select(0, 100).getRow((Object) 1);
+        assertEquals(new HashSet<>(Arrays.asList("i1", "i2")), new HashSet<>(Arrays.asList(
+                row.getColumn(Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT))));
+        assertEquals(2, row.getColumn("listParameter.text").length);
+
+        row.setColumnValue("second", 2, Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT);
+        second.flushUpdates(t -> {
+            t.printStackTrace();
+            throw new RuntimeException("Too many errors", t);
+        });
+        assertTrue(repository.get(1).getListParameter().stream()
+                .anyMatch(i -> "second".equals(i.getText()) && i.getSampleId() == 1));
+    }
+
+    @Test
+    @Transactional
+    public void selectWithTotalViewTest() throws Exception {
+        setUp();
+        execute("INSERT INTO ddata.\"sample\" (id, s) VALUES (3,'s3');");
+
+        DDataView view = viewBuilder.build(Sample_WB_.class,
+                new DDataFilter(Sample_WB_.ID), new DDataFilter(Sample_WB_.STR_PARAMETER));
+        assertEquals(-1, view.select(0, 100).getTotal());
+
+        DDataViewRows rows = view.selectWithTotal(0, 1);
+        assertEquals(1, rows.size());
+        assertEquals(3, rows.getTotal());
+        assertEquals(1, rows.getRow(0).getColumnValue(0, Sample_WB_.ID));
+
+        // counting is stopped, but page is taken in order of view
+        rows = view.selectWithTotal(1, 1, 2);
+        assertEquals(1, rows.size());
+        assertEquals(2, rows.getTotal());
+        assertEquals(2, rows.getRow(0).getColumnValue(0, Sample_WB_.ID));
+
+        // page out of rows is counted by separate statement
+        rows = view.selectWithTotal(10, 10);
+        assertEquals(0, rows.size());
+        assertEquals(3, rows.getTotal());
+        rows = view.selectWithTotal(10, 10, 2);
+        assertEquals(0, rows.size());
+        assertEquals(2, rows.getTotal());
+
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.ID, DDataFilterOperator.GREATE, 1));
+        }});
+        rows = view.selectWithTotal(0, 100);
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.getTotal());
+    }
+
+    @Test
+    @Transactional
+    public void loadViewTest() throws Exception {
+        setUp();
+
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER));
+            add(new DDataFilter(Sample_WB_.LIST_PARAMETER) {{
+                add(new DDataFilter(Inner_WB_.TEXT));
+            }});
+        }});
+        List<Throwable> errors = new ArrayList<>();
+        long loaded = view.load(Arrays.asList("load1", "fail", "load2", "load3").iterator(), (name, row) -> {
+            row.setColumnValue(name, 0, Sample_WB_.STR_PARAMETER);
+            row.setColumnValue(name + "-inner", 0, Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT);
+            // row is filled partially and failed
+            if ("fail".equals(name)) throw new DDataException("not loaded: " + name);
+        }, 2, errors::add);
+        assertEquals(3, loaded);
+        assertEquals(1, errors.size());
+
+        // ids of new beans are taken from sequence
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.ID, DDataFilterOperator.GREATE, 1999));
+        }});
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(3, rows.size());
+        Set<Object> names = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            DDataViewRow row = rows.getRow(i);
+            Object name = row.getColumnValue(0, Sample_WB_.STR_PARAMETER);
+            names.add(name);
+            // mapping of child is filled in chunk
+            assertEquals(name + "-inner", row.getColumnValue(0, Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("load1", "load2", "load3")), names);
+        assertEquals(5, viewBuilder.build(Sample_WB_.class, new DDataFilter(Sample_WB_.ID)).count());
+    }
+
     @Test
     @Transactional
     @Commit
@@ -927,6 +1332,35 @@ public class DDataTest {
         tp.awaitTermination(10, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void dictionarySingleFlightTest() throws Exception {
+        setUp();
+        SmallDict e = smallDictRepo.get(1);
+        e.setName("reloaded");
+        // change of dictionary clears version, so list is loaded again
+        smallDictRepo.update(e);
+
+        int readers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService tp = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<List<SmallDict>>> lists = new ArrayList<>();
+            for (int i = 0; i < readers; i++)
+                lists.add(tp.submit(() -> {
+                    start.await();
+                    return smallDictRepo.list();
+                }));
+            start.countDown();
+            List<SmallDict> first = lists.get(0).get(10, TimeUnit.SECONDS);
+            assertTrue(first.stream().anyMatch(d -> "reloaded".equals(d.getName())));
+            // readers waiting for load get the same published list
+            for (Future<List<SmallDict>> list : lists)
+                assertSame(first, list.get(10, TimeUnit.SECONDS));
+        } finally {
+            tp.shutdownNow();
+        }
+    }
+
     @Test
     public void beanSerializationTest() throws SQLException, IOException, ClassNotFoundException {
         setUp();
@@ -1351,5 +1785,573 @@ public class DDataTest {
         assertTrue(repository.get(1).getStrParameter().equals("update"));
     }
 
+    @Test
+    @Transactional
+    public void saveAllExistingAndNewTest() throws SQLException {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+        UpdateOptions updateOptions = UpdateOptions.build()
+                .exclude(Sample_WB_.ITEM)
+                .exclude(Sample_WB_.LIST_PARAMETER)
+                .exclude(Sample_WB_.INNER);
+        Sample existing = new SampleImpl();
+        existing.setId(1);
+        existing.setStrParameter("saveAll1");
+        Sample created = new SampleImpl();
+        created.setId(20);
+        created.setStrParameter("saveAll20");
+
+        List<Sample> saved = dData.saveAll(Arrays.asList(existing, created), updateOptions);
+        assertEquals(2, saved.size());
+        assertEquals("saveAll1", repository.get(1).getStrParameter());
+        assertEquals("saveAll20", repository.get(20).getStrParameter());
+    }
 
-}
\ No newline at end of file
+    @Test
+    @Transactional
+    public void upsertNewBeansTest() throws SQLException {
+        setUp();
+        UpdateOptions updateOptions = UpdateOptions.build()
+                .exclude(Inner_WB_.SAMPLE).exclude(Inner_WB_.V1).upsert();
+        Inner first = new InnerImpl();
+        first.setSampleId(1);
+        first.setText("upsert1");
+        Inner second = new InnerImpl();
+        second.setSampleId(1);
+        second.setText("upsert2");
+        Inner saved1 = dData.save(first, updateOptions);
+        Inner saved2 = dData.save(second, updateOptions);
+        // id 0 is not set, both beans get ids from sequence
+        assertTrue(saved1.getId() >= 2000);
+        assertTrue(saved2.getId() >= 2000);
+        assertNotEquals(saved1.getId(), saved2.getId());
+        assertEquals("upsert1", iInnerRepository.get(saved1.getId()).getText());
+        assertEquals("upsert2", iInnerRepository.get(saved2.getId()).getText());
+    }
+
+    @Test
+    @Transactional
+    public void trackedBeanSaveTest() throws SQLException {
+        setUp();
+        DDataRepository<TrackedSample, Integer> repository = dData.getBeanRepository(TrackedSample.class);
+
+        TrackedSample bean = repository.get(1);
+        bean.setHash(new byte[]{1, 2});
+        dData.save(bean);
+        // array changed in place differs from state taken on save
+        bean.getHash()[0] = 9;
+        dData.save(bean);
+        assertArrayEquals(new byte[]{9, 2}, repository.get(1).getHash());
+        assertEquals("s1", repository.get(1).getStrParameter());
+
+        // changed bean which row is deleted after load is inserted again
+        bean = repository.get(2);
+        repository.delete(2);
+        assertNull(repository.get(2));
+        bean.setStrParameter("restored");
+        dData.save(bean);
+        TrackedSample restored = repository.get(2);
+        assertNotNull(restored);
+        assertEquals("restored", restored.getStrParameter());
+        assertEquals(1003, restored.getInnerId());
+    }
+
+    @Test
+    @Transactional
+    public void orphansDeleteTest() throws SQLException {
+        setUp();
+        Sample bean = iSampleRepository.get(1);
+        assertEquals(2, bean.getListParameter().size());
+        // из коллекции убрана запись 1002, она удаляется при сохранении
+        bean.setListParameter(bean.getListParameter().stream()
+                .filter(i -> i.getId() == 1001)
+                .collect(Collectors.toList()));
+        dData.save(bean);
+
+        assertNull(iInnerRepository.get(1002));
+        assertNotNull(iInnerRepository.get(1001));
+        assertNotNull(iInnerRepository.get(1003));
+        assertEquals(1, iSampleRepository.get(1).getListParameter().size());
+        assertEquals(1, iSampleRepository.get(2).getListParameter().size());
+    }
+
+    @Test
+    public void batchFlushAtCommitTest() throws SQLException {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // commit without flushStatements sends buffered inserts
+        int committedId = transaction.execute(status -> {
+            Sample s = sampleBatchOps.create(Sample.class);
+            s.setStrParameter("commit");
+            sampleBatchOps.insert(s);
+            return s.getId();
+        });
+        assertEquals("commit", repository.get(committedId).getStrParameter());
+
+        // inserts of rolled back transaction are not sent by next one
+        int rolledBackId = transaction.execute(status -> {
+            Sample s = sampleBatchOps.create(Sample.class);
+            s.setStrParameter("rollback");
+            sampleBatchOps.insert(s);
+            status.setRollbackOnly();
+            return s.getId();
+        });
+        transaction.execute(status -> sampleBatchOps.flushStatements());
+        assertNull(repository.get(rolledBackId));
+    }
+
+    @Test
+    public void batchSnapshotTest() throws SQLException {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // bean changed after insert is written as it was at insert
+        int id = transaction.execute(status -> {
+            Sample s = sampleBatchOps.create(Sample.class);
+            s.setStrParameter("inserted");
+            sampleBatchOps.insert(s);
+            s.setStrParameter("changed");
+            return s.getId();
+        });
+        assertEquals("inserted", repository.get(id).getStrParameter());
+
+        // outside of transaction operation is not buffered for next request of thread
+        Sample s = sampleBatchOps.create(Sample.class);
+        s.setStrParameter("at once");
+        sampleBatchOps.insert(s);
+        assertEquals("at once", repository.get(s.getId()).getStrParameter());
+        s.setStrParameter("updated at once");
+        sampleBatchOps.update(s);
+        assertEquals("updated at once", repository.get(s.getId()).getStrParameter());
+    }
+
+    @Test
+    @Transactional
+    public void modifiedOnlyViewUpdateTest() throws Exception {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER));
+            add(new DDataFilter(Sample_WB_.REMOTE_ID));
+            add(new DDataFilter(Sample_WB_.LIST_PARAMETER) {{
+                add(new DDataFilter(Inner_WB_.TEXT));
+                add(new DDataFilter(Inner_WB_.SAMPLE_ID));
+            }});
+        }});
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.ID, DDataFilterOperator.EQUALS, 1));
+        }});
+        DDataViewRow row = view.select(0, 100).getRow(0);
+
+        // column changed after select is not written back by view
+        Sample sample = repository.get(1);
+        sample.setRemoteId(777);
+        repository.update(sample);
+
+        row.setColumnValue("modified only", 0, Sample_WB_.STR_PARAMETER);
+        // mapping column of new item is set by view
+        row.setColumnValue("new inner", 2, Sample_WB_.LIST_PARAMETER, Inner_WB_.TEXT);
+        view.flushUpdates(t -> {
+            t.printStackTrace();
+            throw new RuntimeException("Too many errors", t);
+        });
+
+        Sample updated = repository.get(1);
+        assertEquals("modified only", updated.getStrParameter());
+        assertEquals(Integer.valueOf(777), updated.getRemoteId());
+        assertTrue(updated.getListParameter().stream()
+                .anyMatch(i -> "new inner".equals(i.getText()) && i.getSampleId() == 1));
+    }
+
+    @Autowired
+    private DDataDictionary<DeltaDict, Integer> deltaDictRepo;
+
+    @Test
+    @Transactional
+    public void deltaDictionaryRefreshTest() throws SQLException {
+        setUp();
+        assertEquals(3, deltaDictRepo.list().size());
+
+        // changes by repository update version, list is refreshed by changed rows and keys
+        deltaDictRepo.delete(2);
+        DeltaDict added = deltaDictRepo.create();
+        added.setId(4);
+        added.setName("d4");
+        added.setRowVersion(2L);
+        deltaDictRepo.insert(added);
+
+        List<DeltaDict> list = deltaDictRepo.list();
+        assertEquals(3, list.size());
+        assertEquals(new HashSet<>(Arrays.asList(1, 3, 4)),
+                list.stream().map(DeltaDict::getId).collect(Collectors.toSet()));
+        assertEquals("d4", deltaDictRepo.get(4).getName());
+    }
+
+    @Test
+    public void dictionarySnapshotsTest() throws Exception {
+        setUp();
+        DDataDictionariesService service = DData.getDictionariesService();
+        File file = File.createTempFile("ddata-dictionaries", ".bin");
+        file.deleteOnExit();
+        service.evict(DeltaDict.class, null);
+        assertEquals(3, deltaDictRepo.list().size());
+        service.saveSnapshots(file);
+
+        // restored list is used at once and is checked by database in background
+        service.evict(DeltaDict.class, null);
+        execute("DELETE FROM ddata.\"deltadict\" WHERE id = 3");
+        deltaDictRepo.version_(deltaDictRepo.version_() + 1);
+        assertTrue(service.restoreSnapshots(file) > 0);
+        assertEquals(3, deltaDictRepo.list().size());
+        long until = System.currentTimeMillis() + 10000;
+        while (deltaDictRepo.list().size() != 2 && System.currentTimeMillis() < until) Thread.sleep(20);
+        assertEquals(2, deltaDictRepo.list().size());
+        assertNull(service.get(DeltaDict.class, 3));
+
+        // list of class out of allow-list is not restored, dictionary is loaded from database
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<>(Collections.singletonList(new java.util.concurrent.atomic.AtomicLong(1))));
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0xDD0A7A01);
+            out.writeInt(1);
+            out.writeUTF(DeltaDict.class.getName());
+            out.writeBoolean(false);
+            out.writeInt(0);
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+        service.evict(DeltaDict.class, null);
+        assertEquals(1, service.restoreSnapshots(file));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)),
+                deltaDictRepo.list().stream().map(DeltaDict::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    @Transactional
+    public void versionalViewFailedChunkTest() throws Exception {
+        setUp();
+        DDataView view = viewBuilder.build(HistSample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(HistSample_WB_.VALUE));
+        }});
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(HistSample_WB_.ID, DDataFilterOperator.EQUALS, 2));
+        }});
+        DDataViewRow row = view.select(0, 100).getRow(0);
+
+        // insert of new version fails, so close of old version is rolled back
+        char[] tooLong = new char[200];
+        Arrays.fill(tooLong, 'x');
+        row.setColumnValue(new String(tooLong), 0, HistSample_WB_.VALUE);
+        List<Throwable> errors = new ArrayList<>();
+        view.flushUpdates(errors::add);
+        assertEquals(1, errors.size());
+        HistSample bean = iVSample.get(2);
+        assertNotNull(bean);
+        assertEquals("h2", bean.getValue());
+        assertNull(bean.getDateTo());
+
+        // transaction is usable after failed chunk, next version closes old one
+        LocalDateTime beforeUpdate = LocalDateTime.now().minusSeconds(1);
+        row = view.select(0, 100).getRow(0);
+        row.setColumnValue("h2v1", 0, HistSample_WB_.VALUE);
+        view.flushUpdates(t -> {
+            t.printStackTrace();
+            throw new RuntimeException("Too many errors", t);
+        });
+        assertEquals("h2v1", iVSample.get(2).getValue());
+        assertEquals("h2", iVSample.get(2, beforeUpdate).getValue());
+    }
+
+    @Test
+    @Transactional
+    public void versionalViewSharedBeanTest() throws Exception {
+        setUp();
+        execute("INSERT INTO ddata.\"h1\" (id, date_from, s, \"inner\") VALUES (3,'2017-01-02T00:00:00','h3',10);");
+
+        DDataView view = viewBuilder.build(HistSample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(HistSample_WB_.ID));
+            add(new DDataFilter(HistSample_WB_.INNER) {{
+                add(new DDataFilter(HistInner_WB_.TEXT));
+            }});
+        }});
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(HistSample_WB_.ID, DDataFilterOperator.GREATE, 0));
+        }});
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(3, rows.size());
+
+        // both rows write new version of the same inner bean by separate chunks
+        rows.getRow((Object) 1).setColumnValue("first", 0, HistSample_WB_.INNER, HistInner_WB_.TEXT);
+        rows.getRow((Object) 3).setColumnValue("second", 0, HistSample_WB_.INNER, HistInner_WB_.TEXT);
+        view.flushUpdates(t -> {
+            t.printStackTrace();
+            throw new RuntimeException("Too many errors", t);
+        });
+        assertTrue(Arrays.asList("first", "second").contains(iVInner.get(10).getText()));
+
+        DDataView versions = viewBuilder.build(HistInner_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(HistInner_WB_.ID));
+            add(new DDataFilter(HistInner_WB_.TEXT));
+        }});
+        versions.selectAllVersions(true);
+        versions.setFilter(new DDataFilter() {{
+            add(new DDataFilter(HistInner_WB_.ID, DDataFilterOperator.EQUALS, 10));
+        }});
+        assertEquals(3, versions.count());
+    }
+
+    @Test
+    @Transactional
+    public void batchViewUpdateTest() throws Exception {
+        setUp();
+        SampleRepository_Dao_ repository = dData.getRepository(SampleRepository_Dao_.class);
+        DDataView view = viewBuilder.build(Sample_WB_.class, new ArrayList<DDataFilter>() {{
+            add(new DDataFilter(Sample_WB_.ID) {{
+                setSortAscending(true);
+            }});
+            add(new DDataFilter(Sample_WB_.STR_PARAMETER));
+            add(new DDataFilter(Sample_WB_.REMOTE_ID));
+        }});
+        view.setFilter(new DDataFilter() {{
+            add(new DDataFilter(Sample_WB_.ID, DDataFilterOperator.GREATE, 0));
+        }});
+        view.setUpdatesBatchSize(2);
+        DDataViewRows rows = view.select(0, 100);
+        assertEquals(2, rows.size());
+
+        // rows with same changed cells are written by one batch
+        rows.getRow(0).setColumnValue("batch0", 0, Sample_WB_.STR_PARAMETER);
+        rows.getRow(1).setColumnValue("batch1", 0, Sample_WB_.STR_PARAMETER);
+        view.flushUpdates(t -> {
+            t.printStackTrace();
+            throw new RuntimeException("Too many errors", t);
+        });
+        assertEquals("batch0", repository.get(1).getStrParameter());
+        assertEquals("batch1", repository.get(2).getStrParameter());
+
+        // failed batch is reported and rolled back, other batch is written
+        rows = view.select(0, 100);
+        DDataViewRow good = rows.getRow(0);
+        DDataViewRow bad = rows.getRow(1);
+        good.setColumnValue("good", 0, Sample_WB_.STR_PARAMETER);
+        good.setColumnValue(555, 0, Sample_WB_.REMOTE_ID);
+        char[] tooLong = new char[200];
+        Arrays.fill(tooLong, 'x');
+        bad.setColumnValue(new String(tooLong), 0, Sample_WB_.STR_PARAMETER);
+        List<Throwable> errors = new ArrayList<>();
+        view.flushUpdates(errors::add);
+        assertEquals(1, errors.size());
+        assertEquals("good", repository.get(1).getStrParameter());
+        assertEquals(Integer.valueOf(555), repository.get(1).getRemoteId());
+        assertEquals("batch1", repository.get(2).getStrParameter());
+    }
+
+    @Test
+    public void sequenceIdsTest() throws Exception {
+        execute("DROP SEQUENCE IF EXISTS ddata.ids_seq;\n" +
+                "CREATE SEQUENCE ddata.ids_seq START 1;\n" +
+                "DROP SEQUENCE IF EXISTS ddata.hilo_seq;\n" +
+                "CREATE SEQUENCE ddata.hilo_seq START 1 INCREMENT 10;");
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService tp = Executors.newFixedThreadPool(threads);
+        SequenceIds.setBlockSize(7);
+        try {
+            // blocks are shared by threads, every id is taken once
+            List<Future<List<Long>>> taken = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                taken.add(tp.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    try (Connection conn = dataSource.getConnection()) {
+                        for (int i = 0; i < perThread; i++)
+                            ids.add(SequenceIds.next(dataSource, conn, "ddata.ids_seq"));
+                    }
+                    return ids;
+                }));
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> f : taken) all.addAll(f.get(10, TimeUnit.SECONDS));
+            assertEquals(threads * perThread, all.size());
+
+            // every value of sequence reserves ids up to next value
+            SequenceIds.setIncrement(dataSource, "ddata.hilo_seq", 10);
+            List<Long> ids = new ArrayList<>();
+            try (Connection conn = dataSource.getConnection()) {
+                for (int i = 0; i < 25; i++) ids.add(SequenceIds.next(dataSource, conn, "ddata.hilo_seq"));
+                try (PreparedStatement st = conn.prepareStatement("SELECT nextval('ddata.hilo_seq')")) {
+                    try (ResultSet rs = st.executeQuery()) {
+                        assertTrue(rs.next());
+                        assertEquals(31, rs.getLong(1));
+                    }
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) assertEquals(Long.valueOf(i + 1), ids.get(i));
+        } finally {
+            SequenceIds.setBlockSize(1);
+            SequenceIds.setIncrement(dataSource, "ddata.hilo_seq", 1);
+            tp.shutdownNow();
+        }
+    }
+
+    @Test
+    public void largeCacheBoundsTest() {
+        DDataLargeCache<Integer, String> cache = new DDataLargeCache<>(100);
+        for (int i = 0; i < 1000; i++) cache.put(i, "v" + i);
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.stats().getEvictionCount() >= 900);
+
+        DDataLargeCache<Integer, String> weighted = new DDataLargeCache<>(1000, String::length);
+        for (int i = 0; i < 1000; i++) weighted.put(i, "value" + i);
+        assertTrue(weighted.stats().getWeight() <= 1000);
+    }
+
+    @Test
+    public void largeCacheAdmissionTest() {
+        DDataLargeCache<Integer, String> cache = new DDataLargeCache<>(100);
+        for (int n = 0; n < 10; n++)
+            for (int i = 0; i < 10; i++) cache.get(i, k -> "hot" + k);
+        // keys used once don't push out frequently used keys
+        for (int i = 100; i < 1100; i++) cache.get(i, k -> "scan" + k);
+        for (int i = 0; i < 10; i++) assertEquals("hot" + i, cache.getIfPresent(i));
+        assertTrue(cache.size() <= 100);
+        assertEquals(1000 + 10, cache.stats().getLoadCount());
+    }
+
+    @Test
+    public void largeCacheStaleLoadTest() {
+        DDataLargeCache<Integer, String> cache = new DDataLargeCache<>(100);
+        // bean put while loader works is newer than loaded one
+        assertEquals("old", cache.get(1, k -> {
+            cache.put(k, "new");
+            return "old";
+        }));
+        assertEquals("new", cache.getIfPresent(1));
+        // bean invalidated while loader works is not cached
+        cache.invalidate(1);
+        cache.get(1, k -> {
+            cache.invalidate(k);
+            return "old";
+        });
+        assertNull(cache.getIfPresent(1));
+        cache.get(1, k -> "loaded");
+        assertEquals("loaded", cache.getIfPresent(1));
+    }
+
+    @Test
+    public void largeCacheConcurrentReadTest() throws Exception {
+        DDataLargeCache<Integer, String> cache = new DDataLargeCache<>(100);
+        for (int i = 0; i < 10; i++) cache.put(i, "v" + i);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 8; t++)
+                readers.add(pool.submit(() -> {
+                    for (int n = 0; n < 10000; n++) assertEquals("v" + (n % 10), cache.getIfPresent(n % 10));
+                }));
+            for (Future<?> f : readers) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+        // every read is counted, even if dropped by policy
+        assertEquals(80000, cache.stats().getHitCount());
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void largeDictionaryVersionTest() throws SQLException {
+        setUp();
+        DDataDictionariesService service = DData.getDictionariesService();
+        service.evict(LargeDict.class, null);
+        DDataDictionary<LargeDict, Integer> repository =
+                (DDataDictionary<LargeDict, Integer>) (Object) dData.getBeanRepository(LargeDict.class);
+        assertEquals("БС знач 1", service.get(LargeDict.class, 1).getName());
+        service.get(LargeDict.class, 2);
+        long loads = service.largeCacheStats(LargeDict.class).getLoadCount();
+
+        // change made by this node keeps cached beans
+        LargeDict changed = service.get(LargeDict.class, 2);
+        changed.setName("changed here");
+        repository.update(changed);
+        assertEquals("changed here", service.get(LargeDict.class, 2).getName());
+        assertEquals("БС знач 1", service.get(LargeDict.class, 1).getName());
+        assertEquals(loads, service.largeCacheStats(LargeDict.class).getLoadCount());
+
+        // change made by other node drops cached beans
+        execute("UPDATE ddata.\"lgdict\" SET name = 'changed there' WHERE id = 1");
+        repository.version_(repository.version_() + 1);
+        assertEquals("changed there", service.get(LargeDict.class, 1).getName());
+        assertEquals(loads + 1, service.largeCacheStats(LargeDict.class).getLoadCount());
+    }
+
+    @Test
+    public void offHeapStoreTest() {
+        DDataOffHeapStore<Integer, String> store = DDataOffHeapStore.<Integer, String>builder(
+                getClass().getClassLoader(), 2)
+                .add(1, "1:a").add(2, "2:b").add(null, "no key").add(3, "3:c")
+                .build();
+        assertEquals(4, store.size());
+        assertEquals(Arrays.asList("1:a", "2:b", "no key", "3:c"), store.asList());
+        assertEquals("2:b", store.get(2));
+        assertTrue(store.containsKey(3));
+        assertNull(store.get(null));
+        assertNull(store.get(5));
+
+        Function<String, Integer> keyOf = v -> Integer.valueOf(v.substring(0, v.indexOf(':')));
+        DDataOffHeapStore<Integer, String> merged = store.merge(
+                Arrays.asList("2:b2", "4:d"), keyOf, Arrays.asList(1, 2, 4));
+        assertEquals(Arrays.asList("1:a", "2:b2", "4:d"), merged.asList());
+        assertEquals("2:b2", merged.get(2));
+        assertFalse(merged.containsKey(3));
+        // source store is not changed by merge
+        assertEquals("2:b", store.get(2));
+
+        // beans replaced many times don't grow store
+        long bytes = merged.bytes();
+        for (int i = 0; i < 1000; i++)
+            merged = merged.merge(Collections.singletonList("2:b" + (i % 10)), keyOf, Arrays.asList(1, 2, 4));
+        assertEquals("2:b9", merged.get(2));
+        assertEquals(bytes, merged.bytes());
+
+        // class descriptors are shared by beans and by merged stores
+        DDataOffHeapStore<Integer, ArrayList<BigDecimal>> decimals = DDataOffHeapStore.<Integer, ArrayList<BigDecimal>>builder(
+                getClass().getClassLoader(), 0)
+                .add(1, new ArrayList<>(Collections.singletonList(BigDecimal.valueOf(1)))).build();
+        decimals = decimals.merge(Collections.singletonList(new ArrayList<>(Arrays.asList(BigDecimal.valueOf(2), BigDecimal.valueOf(3)))),
+                l -> 2, Arrays.asList(1, 2));
+        assertEquals(Collections.singletonList(BigDecimal.valueOf(1)), decimals.get(1));
+        assertEquals(Arrays.asList(BigDecimal.valueOf(2), BigDecimal.valueOf(3)), decimals.get(2));
+    }
+
+    @Test
+    @Transactional
+    public void offHeapDictionaryTest() throws SQLException {
+        setUp();
+        DData.getDictionariesService().setOffHeap(DeltaDict.class, 1);
+        try {
+            List<DeltaDict> list = deltaDictRepo.list();
+            assertEquals(3, list.size());
+            assertEquals("d2", list.stream().filter(d -> d.getId() == 2).findAny().get().getName());
+            assertEquals("d1", deltaDictRepo.get(1).getName());
+
+            // refresh of off-heap list by changed rows and keys
+            deltaDictRepo.delete(2);
+            DeltaDict added = deltaDictRepo.create();
+            added.setId(4);
+            added.setName("d4");
+            added.setRowVersion(2L);
+            deltaDictRepo.insert(added);
+            list = deltaDictRepo.list();
+            assertEquals(new HashSet<>(Arrays.asList(1, 3, 4)),
+                    list.stream().map(DeltaDict::getId).collect(Collectors.toSet()));
+            assertEquals("d4", deltaDictRepo.get(4).getName());
+        } finally {
+            // other tests use dictionary on heap
+            DData.getDictionariesService().setOffHeap(DeltaDict.class, -1);
+        }
+    }
+}
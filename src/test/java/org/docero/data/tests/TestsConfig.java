@@ -1,5 +1,6 @@
 package org.docero.data.tests;
 
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.TypeHandler;
@@ -76,6 +77,7 @@ public class TestsConfig {
         bean.setMapperLocations(DDataSpringResources.get(context, DDataModule.class));
         bean.setTransactionFactory(transactionManager);
         bean.setObjectFactory(DData.getObjectFactory());
+        bean.setPlugins(new Interceptor[]{DData.getLoadInterceptor()});
         bean.setTypeHandlers(new TypeHandler[]{new UUIDTypeHandler()});
         new MyBatisSpringConfigurationFactory().setApplicationContext(context);
 